@@ -6,6 +6,30 @@ plugins {
 
 application.mainClass = "top.modpotato.Amnesia.Main"
 
+// Benchmarks for the shuffle engine, run with ./gradlew jmh
+val jmh by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+// Load test on a mock server, run with ./gradlew loadTest, shares the synthetic registry with the benchmarks
+val integrationTest by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + jmh.output
+    runtimeClasspath += sourceSets.main.get().output + jmh.output
+}
+
+configurations {
+    named("jmhImplementation") {
+        extendsFrom(compileOnly.get())
+    }
+    testImplementation {
+        extendsFrom(compileOnly.get())
+    }
+    named("integrationTestImplementation") {
+        extendsFrom(compileOnly.get())
+    }
+}
+
 group = project.property("group").toString()
 version = project.property("version").toString()
 description = project.property("description").toString()
@@ -27,6 +51,17 @@ dependencies {
     // compileOnly("dev.folia:folia-api:${project.property("foliaVersion")}")
     
     compileOnly("net.kyori:adventure-api:${project.property("adventureVersion")}")
+    
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:${project.property("jmhVersion")}")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:${project.property("jmhVersion")}")
+    "jmhImplementation"("org.mockbukkit.mockbukkit:mockbukkit-v1.21:${project.property("mockBukkitVersion")}")
+    
+    testImplementation(platform("org.junit:junit-bom:${project.property("junitVersion")}"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation("org.mockbukkit.mockbukkit:mockbukkit-v1.21:${project.property("mockBukkitVersion")}")
+    
+    "integrationTestImplementation"("org.mockbukkit.mockbukkit:mockbukkit-v1.21:${project.property("mockBukkitVersion")}")
 }
 
 tasks {
@@ -45,6 +80,10 @@ tasks {
         options.encoding = Charsets.UTF_8.name()
     }
     
+    test {
+        useJUnitPlatform()
+    }
+    
     processResources {
         filteringCharset = Charsets.UTF_8.name()
         filesMatching("plugin.yml") {
@@ -57,6 +96,43 @@ tasks {
         }
     }
     
+    register<JavaExec>("jmh") {
+        group = "verification"
+        description = "Runs the shuffle engine benchmarks, pass JMH options with -PjmhArgs"
+        classpath = jmh.runtimeClasspath
+        mainClass = "org.openjdk.jmh.Main"
+        
+        val results = layout.buildDirectory.file("reports/jmh/results.json")
+        outputs.file(results)
+        doFirst {
+            results.get().asFile.parentFile.mkdirs()
+        }
+        args("-rf", "json", "-rff", results.get().asFile.absolutePath)
+        project.findProperty("jmhArgs")?.let { args(it.toString().split(" ").filter(String::isNotBlank)) }
+    }
+    
+    register<JavaExec>("loadTest") {
+        group = "verification"
+        description = "Shuffles on a mock server with fake players and reports the main-thread cost"
+        classpath = integrationTest.runtimeClasspath
+        mainClass = "top.modpotato.Amnesia.loadtest.ShuffleLoadTest"
+        
+        val report = layout.buildDirectory.file("reports/loadtest/report.txt")
+        outputs.file(report)
+        outputs.upToDateWhen { false }
+        args(report.get().asFile.absolutePath)
+        
+        // Pass -PloadTestRecipes, -PloadTestPlayers, -PloadTestShuffles or -PloadTestShuffleMode to override
+        mapOf(
+            "loadTestRecipes" to "amnesia.loadtest.recipes",
+            "loadTestPlayers" to "amnesia.loadtest.players",
+            "loadTestShuffles" to "amnesia.loadtest.shuffles",
+            "loadTestShuffleMode" to "amnesia.loadtest.shuffle-mode"
+        ).forEach { (property, systemProperty) ->
+            project.findProperty(property)?.let { systemProperty(systemProperty, it.toString()) }
+        }
+    }
+    
     runServer {
         minecraftVersion("1.21.4")
     }
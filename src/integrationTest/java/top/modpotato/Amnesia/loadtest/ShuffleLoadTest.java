@@ -0,0 +1,372 @@
+package top.modpotato.Amnesia.loadtest;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerRecipeBookSettingsChangeEvent;
+import org.bukkit.inventory.Recipe;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.benchmark.SyntheticRegistry;
+import top.modpotato.Amnesia.recipe.builder.RecipeBuilderFactory;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures what shuffles cost the main thread on a mock server with synthetic recipes and fake players
+ * Every client sync mode is shuffled a few times while the server ticks at 20 TPS, and the main-thread time of
+ * each phase, the worst tick and the allocations are reported
+ * Phase times come from the plugin's own Flight Recorder events, recorded in-process
+ * The run fails if any shuffle does not settle, so a stuck apply or sync can't pass unnoticed
+ */
+public final class ShuffleLoadTest {
+    private static final String[] SYNC_MODES = {"resync", "clear", "delta", "lazy", "vanilla"};
+    private static final String[] EVENTS = {
+            "top.modpotato.amnesia.StoreRecipes",
+            "top.modpotato.amnesia.PrepareShuffle",
+            "top.modpotato.amnesia.ApplyBatch",
+            "top.modpotato.amnesia.ClientSync",
+            "top.modpotato.amnesia.PlayerSync"};
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final int MAX_TICKS = 20 * 60 * 5;
+    
+    private final ServerMock server;
+    private final Main plugin;
+    private final List<PlayerMock> players = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long mainThreadId = Thread.currentThread().threadId();
+    private int unsettled;
+    
+    /**
+     * Creates a new ShuffleLoadTest
+     * @param server the mock server
+     * @param plugin the loaded plugin
+     */
+    private ShuffleLoadTest(ServerMock server, Main plugin) {
+        this.server = server;
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Runs the load test
+     * Configured with the system properties amnesia.loadtest.recipes, amnesia.loadtest.players,
+     * amnesia.loadtest.shuffles and amnesia.loadtest.shuffle-mode
+     * Exits with status 1 if any shuffle did not settle
+     * @param args the path to write the report to, printed only if missing
+     * @throws IOException if the recording or the report could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        int recipeCount = Integer.getInteger("amnesia.loadtest.recipes", 5000);
+        int playerCount = Integer.getInteger("amnesia.loadtest.players", 300);
+        int shuffles = Integer.getInteger("amnesia.loadtest.shuffles", 3);
+        String shuffleMode = System.getProperty("amnesia.loadtest.shuffle-mode");
+        
+        int unsettled;
+        ServerMock server = MockBukkit.mock();
+        try {
+            // Register the synthetic recipes before the plugin stores them
+            RecipeInterner interner = new RecipeInterner();
+            for (RecipeDescriptor descriptor : SyntheticRegistry.create(recipeCount, 0x5EEDL, interner).values()) {
+                Recipe recipe = RecipeBuilderFactory.createRecipe(descriptor, descriptor.result().toItemStack());
+                if (recipe != null) {
+                    server.addRecipe(recipe);
+                }
+            }
+            
+            Main plugin = MockBukkit.load(Main.class);
+            plugin.getTimerManager().stopTimer();
+            if (shuffleMode != null) {
+                plugin.getConfigManager().setShuffleMode(shuffleMode);
+            }
+            
+            ShuffleLoadTest test = new ShuffleLoadTest(server, plugin);
+            for (int i = 0; i < playerCount; i++) {
+                test.players.add(server.addPlayer());
+            }
+            
+            StringBuilder report = new StringBuilder();
+            report.append("Amnesia load test: ").append(recipeCount).append(" recipes, ").append(playerCount)
+                    .append(" players, ").append(shuffles).append(" shuffle(s) per sync mode, shuffle mode ")
+                    .append(plugin.getConfigManager().getShuffleMode()).append(", apply mode ")
+                    .append(plugin.getConfigManager().getApplyMode()).append('\n');
+            report.append("Phase times are main-thread milliseconds per shuffle, allocations are MB per shuffle\n\n");
+            report.append(String.format("%-10s %7s %9s %11s %9s %9s %13s %10s %10s %11s%n", "sync mode", "ticks",
+                    "store", "prepare", "apply", "sync", "async prep", "worst tick", "main MB", "total MB"));
+            
+            // The first shuffle stores the original recipes and warms up the JIT, report it on its own
+            plugin.getConfigManager().setClientSyncMode("vanilla");
+            report.append(test.run(1).format("warm-up"));
+            
+            for (String syncMode : SYNC_MODES) {
+                plugin.getConfigManager().setClientSyncMode(syncMode);
+                report.append(test.run(shuffles).format(syncMode));
+            }
+            
+            System.out.print(report);
+            if (args.length > 0) {
+                Path path = Path.of(args[0]);
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                Files.writeString(path, report);
+                System.out.println("Report written to " + path.toAbsolutePath());
+            }
+            unsettled = test.unsettled;
+        } finally {
+            MockBukkit.unmock();
+        }
+        
+        if (unsettled > 0) {
+            System.err.println(unsettled + " shuffle(s) did not settle within " + MAX_TICKS + " ticks");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Shuffles a number of times in the current sync mode and records what each shuffle cost
+     * @param shuffles the number of shuffles
+     * @return the totals over every shuffle
+     * @throws IOException if the recording could not be read back
+     */
+    private Result run(int shuffles) throws IOException {
+        Result result = new Result(shuffles);
+        
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            
+            long mainAllocated = threads.getCurrentThreadAllocatedBytes();
+            long totalAllocated = threads.getTotalThreadAllocatedBytes();
+            
+            for (int i = 0; i < shuffles; i++) {
+                plugin.getDataManager().setSeed(plugin.getDataManager().generateRandomSeed(), false);
+                long nanos = timed(() -> plugin.getRecipeManager().shuffleRecipes(false));
+                result.worstTickNanos = Math.max(result.worstTickNanos, nanos);
+                tickUntilSettled(result);
+                
+                // Lazy sync happens when players need their recipe book, have everyone open it over a second
+                if (plugin.getConfigManager().getClientSyncMode().equalsIgnoreCase("lazy")) {
+                    openRecipeBooks(result);
+                }
+            }
+            
+            result.mainAllocatedBytes = threads.getCurrentThreadAllocatedBytes() - mainAllocated;
+            result.totalAllocatedBytes = threads.getTotalThreadAllocatedBytes() - totalAllocated;
+            
+            recording.stop();
+            Path dump = Files.createTempFile("amnesia-loadtest", ".jfr");
+            try {
+                recording.dump(dump);
+                result.addEvents(RecordingFile.readAllEvents(dump), mainThreadId);
+            } finally {
+                Files.deleteIfExists(dump);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Ticks the server until the shuffle was prepared, applied and synced
+     * @param result the result to record ticks in
+     */
+    private void tickUntilSettled(Result result) {
+        int ticks = 0;
+        while (plugin.getRecipeManager().isBusy()) {
+            if (++ticks > MAX_TICKS) {
+                result.unsettled++;
+                unsettled++;
+                return;
+            }
+            tick(result, () -> {});
+        }
+    }
+    
+    /**
+     * Has every player open their recipe book, a twentieth of the players per tick
+     * @param result the result to record ticks in
+     */
+    private void openRecipeBooks(Result result) {
+        int perTick = Math.max(1, players.size() / 20);
+        for (int start = 0; start < players.size(); start += perTick) {
+            List<PlayerMock> batch = players.subList(start, Math.min(start + perTick, players.size()));
+            tick(result, () -> {
+                for (Player player : batch) {
+                    server.getPluginManager().callEvent(new PlayerRecipeBookSettingsChangeEvent(player,
+                            PlayerRecipeBookSettingsChangeEvent.RecipeBookType.CRAFTING, true, false));
+                }
+            });
+        }
+    }
+    
+    /**
+     * Runs one server tick, then waits out the rest of the 50ms like a real server
+     * @param result the result to record the tick in
+     * @param work extra work to run as part of the tick
+     */
+    private void tick(Result result, Runnable work) {
+        long nanos = timed(() -> {
+            work.run();
+            server.getScheduler().performOneTick();
+        });
+        result.ticks++;
+        result.worstTickNanos = Math.max(result.worstTickNanos, nanos);
+        
+        if (nanos < TICK_NANOS) {
+            LockSupport.parkNanos(TICK_NANOS - nanos);
+        }
+    }
+    
+    /**
+     * Times a task
+     * @param task the task
+     * @return the time it took in nanoseconds
+     */
+    private static long timed(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * What a number of shuffles in one sync mode cost
+     */
+    private static final class Result {
+        private final int shuffles;
+        private int ticks;
+        private int unsettled;
+        private long worstTickNanos;
+        private long mainAllocatedBytes;
+        private long totalAllocatedBytes;
+        private long storeNanos;
+        private long prepareNanos;
+        private long asyncPrepareNanos;
+        private long applyNanos;
+        private long syncNanos;
+        
+        /**
+         * Creates a new Result
+         * @param shuffles the number of shuffles the totals are over
+         */
+        private Result(int shuffles) {
+            this.shuffles = shuffles;
+        }
+        
+        /**
+         * Adds up the recorded phase events
+         * A client sync runs its first batch of player syncs inline, those are only counted once
+         * @param events the recorded events
+         * @param mainThreadId the id of the main thread
+         */
+        private void addEvents(List<RecordedEvent> events, long mainThreadId) {
+            List<RecordedEvent> clientSyncs = new ArrayList<>();
+            List<RecordedEvent> playerSyncs = new ArrayList<>();
+            
+            for (RecordedEvent event : events) {
+                boolean main = event.getThread() != null && event.getThread().getJavaThreadId() == mainThreadId;
+                long nanos = event.getDuration().toNanos();
+                
+                switch (event.getEventType().getName()) {
+                    case "top.modpotato.amnesia.PrepareShuffle":
+                        if (main) {
+                            prepareNanos += nanos;
+                        } else {
+                            asyncPrepareNanos += nanos;
+                        }
+                        break;
+                    
+                    case "top.modpotato.amnesia.StoreRecipes":
+                        storeNanos += main ? nanos : 0;
+                        break;
+                    
+                    case "top.modpotato.amnesia.ApplyBatch":
+                        applyNanos += main ? nanos : 0;
+                        break;
+                    
+                    case "top.modpotato.amnesia.ClientSync":
+                        if (main) {
+                            clientSyncs.add(event);
+                            syncNanos += nanos;
+                        }
+                        break;
+                    
+                    case "top.modpotato.amnesia.PlayerSync":
+                        if (main) {
+                            playerSyncs.add(event);
+                        }
+                        break;
+                    
+                    default:
+                        break;
+                }
+            }
+            
+            for (RecordedEvent playerSync : playerSyncs) {
+                if (!isWithinAny(playerSync, clientSyncs)) {
+                    syncNanos += playerSync.getDuration().toNanos();
+                }
+            }
+        }
+        
+        /**
+         * Checks if an event ran inside any of a list of events
+         * @param event the event
+         * @param outer the events it may have run inside
+         * @return true if it started and ended inside one of them, false otherwise
+         */
+        private static boolean isWithinAny(RecordedEvent event, List<RecordedEvent> outer) {
+            for (RecordedEvent candidate : outer) {
+                if (!event.getStartTime().isBefore(candidate.getStartTime())
+                        && !event.getEndTime().isAfter(candidate.getEndTime())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Formats the averages per shuffle as a report row
+         * @param label the row label
+         * @return the row
+         */
+        private String format(String label) {
+            String row = String.format("%-10s %7d %9.2f %11.2f %9.2f %9.2f %13.2f %10.2f %10.1f %11.1f%n", label,
+                    ticks / shuffles, millis(storeNanos), millis(prepareNanos), millis(applyNanos), millis(syncNanos),
+                    millis(asyncPrepareNanos), worstTickNanos / 1e6, megabytes(mainAllocatedBytes),
+                    megabytes(totalAllocatedBytes));
+            if (unsettled > 0) {
+                row += "           " + unsettled + " shuffle(s) did not settle within " + MAX_TICKS + " ticks\n";
+            }
+            return row;
+        }
+        
+        /**
+         * Converts a total to milliseconds per shuffle
+         * @param nanos the total in nanoseconds
+         * @return the milliseconds per shuffle
+         */
+        private double millis(long nanos) {
+            return nanos / 1e6 / shuffles;
+        }
+        
+        /**
+         * Converts a total to megabytes per shuffle
+         * @param bytes the total in bytes
+         * @return the megabytes per shuffle
+         */
+        private double megabytes(long bytes) {
+            return bytes / (1024.0 * 1024.0) / shuffles;
+        }
+    }
+}
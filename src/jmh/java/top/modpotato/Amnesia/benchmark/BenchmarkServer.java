@@ -0,0 +1,31 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+/**
+ * Starts a mock server for benchmarks that touch materials, items or recipe choices
+ * Those need a server registry to exist, the benchmarks themselves never call into it
+ */
+public final class BenchmarkServer {
+    
+    private BenchmarkServer() {
+    }
+    
+    /**
+     * Starts the mock server if it isn't running yet
+     */
+    public static void start() {
+        if (!MockBukkit.isMocked()) {
+            MockBukkit.mock();
+        }
+    }
+    
+    /**
+     * Stops the mock server
+     */
+    public static void stop() {
+        if (MockBukkit.isMocked()) {
+            MockBukkit.unmock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import top.modpotato.Amnesia.recipe.builder.RecipeBuilderFactory;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a real recipe for every descriptor in the registry, dispatched by recipe type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuilderDispatchBenchmark {
+    private static final long SEED = 0x5EEDL;
+    
+    @Param({"1000", "10000", "100000"})
+    public int recipes;
+    
+    private RecipeDescriptor[] descriptors;
+    private ItemStack[] results;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkServer.start();
+        descriptors = SyntheticRegistry.create(recipes, SEED, new RecipeInterner()).values()
+                .toArray(new RecipeDescriptor[0]);
+        
+        // Results are built up front, the apply pipeline builds them the same way before dispatching
+        results = new ItemStack[descriptors.length];
+        for (int i = 0; i < descriptors.length; i++) {
+            results[i] = descriptors[(i + 1) % descriptors.length].result().toItemStack();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkServer.stop();
+    }
+    
+    @Benchmark
+    public void createRecipes(Blackhole blackhole) {
+        for (int i = 0; i < descriptors.length; i++) {
+            blackhole.consume(RecipeBuilderFactory.createRecipe(descriptors[i], results[i]));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic excluded-random-items lists
+ */
+public final class ExclusionLists {
+    /**
+     * The default list from config.yml
+     */
+    public static final List<String> TYPICAL = List.of(
+            "minecraft:air", "minecraft:barrier", "minecraft:structure_void", "minecraft:command_block",
+            "minecraft:chain_command_block", "minecraft:repeating_command_block", "minecraft:command_block_minecart",
+            "minecraft:debug_stick", "minecraft:jigsaw", "minecraft:structure_block", "minecraft:knowledge_book");
+    
+    private ExclusionLists() {
+    }
+    
+    /**
+     * Gets a list by name
+     * @param name "none", "typical" or "heavy"
+     * @return the excluded item keys
+     */
+    public static List<String> named(String name) {
+        switch (name) {
+            case "none":
+                return List.of();
+            case "typical":
+                return TYPICAL;
+            case "heavy":
+                return heavy();
+            default:
+                throw new IllegalArgumentException("Unknown exclusion list: " + name);
+        }
+    }
+    
+    /**
+     * Builds a list that also excludes every spawn egg, shulker box, banner, music disc and smithing template,
+     * like servers that keep shuffles away from rare or creative-only items
+     * @return the excluded item keys
+     */
+    private static List<String> heavy() {
+        List<String> excluded = new ArrayList<>(TYPICAL);
+        for (Material material : Material.values()) {
+            String name = material.name();
+            if (name.endsWith("_SPAWN_EGG") || name.endsWith("SHULKER_BOX") || name.endsWith("_BANNER")
+                    || name.startsWith("MUSIC_DISC_") || name.endsWith("_SMITHING_TEMPLATE")) {
+                excluded.add("minecraft:" + name.toLowerCase());
+            }
+        }
+        return excluded;
+    }
+}
@@ -0,0 +1,52 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.modpotato.Amnesia.recipe.util.MaterialCache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compiling the random item pool from an exclusion list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaterialPoolBenchmark {
+    
+    @Param({"none", "typical", "heavy"})
+    public String exclusions;
+    
+    private List<String> excludedItems;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkServer.start();
+        excludedItems = ExclusionLists.named(exclusions);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkServer.stop();
+    }
+    
+    @Benchmark
+    public MaterialCache.RandomItemPool compilePool() {
+        return MaterialCache.RandomItemPool.compile(excludedItems);
+    }
+}
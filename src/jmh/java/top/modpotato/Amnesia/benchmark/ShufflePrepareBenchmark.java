@@ -0,0 +1,67 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.bukkit.NamespacedKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+import top.modpotato.Amnesia.recipe.util.MaterialCache;
+import top.modpotato.Amnesia.recipe.util.ShuffleAlgorithms;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures preparing a full shuffle in the random_item and recipe_result modes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShufflePrepareBenchmark {
+    private static final long SEED = 0x5EEDL;
+    
+    @Param({"1000", "10000", "100000"})
+    public int recipes;
+    
+    private RecipeInterner interner;
+    private Map<NamespacedKey, RecipeDescriptor> registry;
+    private MaterialCache.RandomItemPool pool;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkServer.start();
+        interner = new RecipeInterner();
+        registry = SyntheticRegistry.create(recipes, SEED, interner);
+        pool = MaterialCache.RandomItemPool.compile(ExclusionLists.TYPICAL);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkServer.stop();
+    }
+    
+    @Benchmark
+    public Map<NamespacedKey, ResultDescriptor> randomItem() {
+        return ShuffleAlgorithms.randomItems(SEED, registry.keySet(), pool, interner);
+    }
+    
+    @Benchmark
+    public Map<NamespacedKey, ResultDescriptor> recipeResult() {
+        return ShuffleAlgorithms.recipeResults(SEED, registry.keySet(), registry);
+    }
+}
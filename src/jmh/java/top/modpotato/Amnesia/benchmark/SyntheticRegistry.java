@@ -0,0 +1,140 @@
+package top.modpotato.Amnesia.benchmark;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.RecipeChoice;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeType;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+import top.modpotato.Amnesia.recipe.util.MaterialCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds synthetic recipe registries of any size
+ * Recipe types roughly follow the vanilla mix, and ingredients and results are drawn from every item material
+ */
+public final class SyntheticRegistry {
+    private static final String[][] SHAPES = {
+            {"AAA", "ABA", "AAA"},
+            {"AB", "BA"},
+            {"A", "A"},
+            {"ABC", " B ", " B "}
+    };
+    private static final char[][] SHAPE_KEYS = {
+            {'A', 'B'},
+            {'A', 'B'},
+            {'A'},
+            {'A', 'B', 'C'}
+    };
+    
+    private SyntheticRegistry() {
+    }
+    
+    /**
+     * Creates a registry
+     * The registry only depends on the size and seed, so runs are comparable between versions
+     * @param size the number of recipes
+     * @param seed the seed for picking types and items
+     * @param interner the interner to share choices, shapes and results with
+     * @return the recipe descriptors by key
+     */
+    public static Map<NamespacedKey, RecipeDescriptor> create(int size, long seed, RecipeInterner interner) {
+        List<Material> items = MaterialCache.getItemMaterials(material -> !material.isAir());
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<NamespacedKey, RecipeDescriptor> recipes = new HashMap<>(size * 2);
+        
+        for (int i = 0; i < size; i++) {
+            NamespacedKey key = new NamespacedKey("benchmark", "recipe_" + i);
+            ResultDescriptor result = interner.result(items.get(random.nextInt(items.size())), 1 + random.nextInt(4));
+            recipes.put(key, createRecipe(key, pickType(random), result, items, random, interner));
+        }
+        return recipes;
+    }
+    
+    /**
+     * Picks a recipe type, weighted like the vanilla registry
+     * @param random the random source
+     * @return the recipe type
+     */
+    private static RecipeType pickType(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 55) {
+            return RecipeType.SHAPED;
+        } else if (roll < 80) {
+            return RecipeType.SHAPELESS;
+        } else if (roll < 86) {
+            return RecipeType.FURNACE;
+        } else if (roll < 89) {
+            return RecipeType.BLASTING;
+        } else if (roll < 92) {
+            return RecipeType.SMOKING;
+        } else if (roll < 94) {
+            return RecipeType.CAMPFIRE;
+        }
+        return RecipeType.STONECUTTING;
+    }
+    
+    /**
+     * Creates the descriptor of one recipe
+     * @param key the recipe key
+     * @param type the recipe type
+     * @param result the result
+     * @param items the item materials to draw ingredients from
+     * @param random the random source
+     * @param interner the interner
+     * @return the descriptor
+     */
+    private static RecipeDescriptor createRecipe(NamespacedKey key, RecipeType type, ResultDescriptor result,
+                                                 List<Material> items, SplittableRandom random,
+                                                 RecipeInterner interner) {
+        switch (type) {
+            case SHAPED: {
+                int shape = random.nextInt(SHAPES.length);
+                char[] shapeKeys = SHAPE_KEYS[shape];
+                RecipeChoice[] ingredients = new RecipeChoice[shapeKeys.length];
+                for (int i = 0; i < ingredients.length; i++) {
+                    ingredients[i] = ingredient(items, random, interner);
+                }
+                String[] rows = new String[SHAPES[shape].length];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = interner.intern(SHAPES[shape][i]);
+                }
+                return new RecipeDescriptor(key, type, rows, shapeKeys.clone(), ingredients, 0, 0, result);
+            }
+            
+            case SHAPELESS: {
+                RecipeChoice[] ingredients = new RecipeChoice[1 + random.nextInt(4)];
+                for (int i = 0; i < ingredients.length; i++) {
+                    ingredients[i] = ingredient(items, random, interner);
+                }
+                return new RecipeDescriptor(key, type, new String[0], new char[0], ingredients, 0, 0, result);
+            }
+            
+            case STONECUTTING:
+                return new RecipeDescriptor(key, type, new String[0], new char[0],
+                        new RecipeChoice[] {ingredient(items, random, interner)}, 0, 0, result);
+            
+            default:
+                // Cooking recipes
+                return new RecipeDescriptor(key, type, new String[0], new char[0],
+                        new RecipeChoice[] {ingredient(items, random, interner)}, 0.1f * random.nextInt(10),
+                        100 + random.nextInt(200), result);
+        }
+    }
+    
+    /**
+     * Creates a random single-material ingredient
+     * @param items the item materials to draw from
+     * @param random the random source
+     * @param interner the interner
+     * @return the ingredient
+     */
+    private static RecipeChoice ingredient(List<Material> items, SplittableRandom random, RecipeInterner interner) {
+        return interner.intern(new RecipeChoice.MaterialChoice(items.get(random.nextInt(items.size()))));
+    }
+}
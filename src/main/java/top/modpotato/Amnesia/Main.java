@@ -4,9 +4,16 @@ import org.bukkit.plugin.java.JavaPlugin;
 import top.modpotato.Amnesia.commands.AmnesiaCommand;
 import top.modpotato.Amnesia.config.ConfigManager;
 import top.modpotato.Amnesia.config.DataManager;
+import top.modpotato.Amnesia.listeners.ClientSyncListener;
+import top.modpotato.Amnesia.listeners.RecipeReloadListener;
+import top.modpotato.Amnesia.listeners.VirtualRecipeListener;
+import top.modpotato.Amnesia.metrics.AmnesiaMetrics;
+import top.modpotato.Amnesia.metrics.MetricsExporter;
 import top.modpotato.Amnesia.recipe.RecipeManager;
 import top.modpotato.Amnesia.timer.TimerManager;
 
+import java.io.IOException;
+
 /**
  * Main plugin class for Amnesia
  * A plugin that shuffles crafting recipes in Minecraft
@@ -18,6 +25,8 @@ public class Main extends JavaPlugin {
     private DataManager dataManager;
     private RecipeManager recipeManager;
     private TimerManager timerManager;
+    private AmnesiaMetrics metrics;
+    private MetricsExporter metricsExporter;
 
     @Override
     public void onEnable() {
@@ -34,6 +43,9 @@ public class Main extends JavaPlugin {
             dataManager = new DataManager(this);
             dataManager.loadData();
             
+            // Initialize metrics, before anything records them
+            metrics = new AmnesiaMetrics(this);
+            
             // Initialize recipe manager
             recipeManager = new RecipeManager(this);
             
@@ -43,6 +55,11 @@ public class Main extends JavaPlugin {
             // Register commands
             getCommand("amnesia").setExecutor(new AmnesiaCommand(this));
             
+            // Register listeners
+            getServer().getPluginManager().registerEvents(new RecipeReloadListener(this), this);
+            getServer().getPluginManager().registerEvents(new ClientSyncListener(this), this);
+            getServer().getPluginManager().registerEvents(new VirtualRecipeListener(this), this);
+            
             // Initialize recipe manager (restore shuffle state if needed)
             recipeManager.initialize();
             
@@ -52,6 +69,9 @@ public class Main extends JavaPlugin {
                 getLogger().info("Timer started with interval of " + configManager.getTimerInterval() + " seconds");
             }
             
+            // Serve metrics if enabled in config
+            updateMetricsExporter();
+            
             getLogger().info("Amnesia has been enabled!");
         } catch (Exception e) {
             getLogger().severe("Error enabling Amnesia: " + e.getMessage());
@@ -63,19 +83,27 @@ public class Main extends JavaPlugin {
     @Override
     public void onDisable() {
         try {
-            // Stop timer if running
+            // Stop serving metrics
+            if (metricsExporter != null) {
+                metricsExporter.stop();
+                metricsExporter = null;
+            }
+            
+            // Stop timer if running, keeping its deadline for the next start
             if (timerManager != null) {
-                timerManager.stopTimer();
+                timerManager.shutdown();
             }
             
-            // Save config
+            // Save config and wait for it to be written
             if (configManager != null) {
                 configManager.saveConfig();
+                configManager.close();
             }
             
-            // Save data
+            // Save data and wait for it to be written
             if (dataManager != null) {
                 dataManager.saveData();
+                dataManager.close();
             }
             
             getLogger().info("Amnesia has been disabled!");
@@ -85,6 +113,29 @@ public class Main extends JavaPlugin {
         }
     }
 
+    /**
+     * Starts, restarts or stops the metrics endpoint to match the config
+     */
+    public void updateMetricsExporter() {
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+            metricsExporter = null;
+        }
+        
+        if (!configManager.isMetricsEnabled()) {
+            return;
+        }
+        
+        MetricsExporter exporter = new MetricsExporter(this, metrics);
+        try {
+            exporter.start(configManager.getMetricsAddress(), configManager.getMetricsPort());
+            metricsExporter = exporter;
+        } catch (IOException e) {
+            exporter.stop();
+            getLogger().severe("Could not start the metrics endpoint: " + e.getMessage());
+        }
+    }
+    
     /**
      * Checks if the server is running on Folia
      * @return true if running on Folia, false otherwise
@@ -145,4 +196,12 @@ public class Main extends JavaPlugin {
     public TimerManager getTimerManager() {
         return timerManager;
     }
+    
+    /**
+     * Gets the metrics
+     * @return the metrics
+     */
+    public AmnesiaMetrics getMetrics() {
+        return metrics;
+    }
 }
\ No newline at end of file
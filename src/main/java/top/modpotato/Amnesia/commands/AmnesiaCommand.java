@@ -5,7 +5,12 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.recipe.history.ShuffleHistoryEntry;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlan;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -15,6 +20,9 @@ import java.util.stream.Collectors;
  * Handles the /amnesia command
  */
 public class AmnesiaCommand implements CommandExecutor, TabCompleter {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    
     private final Main plugin;
     
     /**
@@ -43,6 +51,10 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
                 return handleSeedCommand(sender, args);
             case "reload":
                 return handleReloadCommand(sender);
+            case "history":
+                return handleHistoryCommand(sender);
+            case "rollback":
+                return handleRollbackCommand(sender, args);
             default:
                 sendHelpMessage(sender);
                 return true;
@@ -68,7 +80,7 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
         for (int i = 1; i < args.length; i++) {
             String arg = args[i].toLowerCase();
             
-            if (arg.equals("random_item") || arg.equals("recipe_result")) {
+            if (arg.equals("random_item") || arg.equals("weighted_item") || arg.equals("recipe_result")) {
                 mode = arg;
             } else if (arg.equals("seed") && i + 1 < args.length) {
                 try {
@@ -127,6 +139,9 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
             int interval = plugin.getConfigManager().getTimerInterval();
             sender.sendMessage("§aTimer status: " + (isRunning ? "§eEnabled" : "§cDisabled"));
             sender.sendMessage("§aTimer interval: §e" + interval + " seconds");
+            if (isRunning) {
+                sender.sendMessage("§aNext shuffle in: §e" + plugin.getTimerManager().getSecondsUntilShuffle() + " seconds");
+            }
             return true;
         }
         
@@ -201,6 +216,7 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
                     long seed = Long.parseLong(args[2]);
                     plugin.getDataManager().setSeed(seed, true); // Mark as user-set
                     plugin.getDataManager().saveData();
+                    plugin.getRecipeManager().invalidatePreparedShuffle();
                     sender.sendMessage("§aSeed set to §e" + seed + " §7(user-set)");
                     return true;
                 } catch (NumberFormatException e) {
@@ -210,6 +226,7 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
             } else if (args[1].equalsIgnoreCase("random")) {
                 long seed = plugin.getDataManager().generateRandomSeed();
                 plugin.getDataManager().saveData();
+                plugin.getRecipeManager().invalidatePreparedShuffle();
                 sender.sendMessage("§aGenerated random seed: §e" + seed + " §7(random)");
                 return true;
             }
@@ -240,10 +257,81 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
             plugin.getTimerManager().stopTimer();
         }
         
+        // Apply metrics endpoint changes
+        plugin.updateMetricsExporter();
+        
         sender.sendMessage("§aAmnesia configuration reloaded.");
         return true;
     }
     
+    /**
+     * Handles the /amnesia history command
+     * @param sender the command sender
+     * @return true if the command was handled, false otherwise
+     */
+    private boolean handleHistoryCommand(CommandSender sender) {
+        if (!sender.hasPermission("amnesia.command.history")) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
+        
+        List<ShuffleHistoryEntry> entries = plugin.getRecipeManager().getHistory().getEntries();
+        if (entries.isEmpty()) {
+            sender.sendMessage("§eNo shuffles have been recorded yet.");
+            return true;
+        }
+        
+        long exclusionFingerprint = ShufflePlan.exclusionFingerprint(plugin.getConfigManager().getExcludedRecipes(),
+                plugin.getConfigManager().getExcludedRandomItems());
+        
+        sender.sendMessage("§6=== Shuffle History ===");
+        for (int i = 0; i < entries.size(); i++) {
+            ShuffleHistoryEntry entry = entries.get(i);
+            String time = TIME_FORMAT.format(Instant.ofEpochMilli(entry.timestamp()));
+            sender.sendMessage("§e#" + (i + 1) + " §7" + time + " §aseed §e" + entry.seed() + " §amode §e" + entry.mode()
+                    + " §7(" + entry.recipeCount() + " recipes"
+                    + (entry.exclusionFingerprint() != exclusionFingerprint ? ", exclusions changed" : "") + ")");
+        }
+        sender.sendMessage("§7Use /amnesia rollback <n> to apply one of these shuffles again.");
+        return true;
+    }
+    
+    /**
+     * Handles the /amnesia rollback command
+     * @param sender the command sender
+     * @param args the command arguments
+     * @return true if the command was handled, false otherwise
+     */
+    private boolean handleRollbackCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("amnesia.command.rollback")) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
+        
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /amnesia rollback <n>");
+            return true;
+        }
+        
+        int index;
+        try {
+            index = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cInvalid history number. See /amnesia history.");
+            return true;
+        }
+        
+        ShuffleHistoryEntry entry = plugin.getRecipeManager().rollback(index);
+        if (entry == null) {
+            sender.sendMessage("§cNo shuffle #" + index + " in the history. See /amnesia history.");
+            return true;
+        }
+        
+        sender.sendMessage("§aRolling back to shuffle #" + index + " with seed §e" + entry.seed()
+                + " §aand mode §e" + entry.mode());
+        return true;
+    }
+    
     /**
      * Sends the help message to a command sender
      * @param sender the command sender
@@ -254,6 +342,8 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§e/amnesia timer [enable|disable|interval <seconds>] §7- Manage timer");
         sender.sendMessage("§e/amnesia seed [view|set <seed>|random] §7- Manage seed");
         sender.sendMessage("§e/amnesia reload §7- Reload configuration");
+        sender.sendMessage("§e/amnesia history §7- List recent shuffles");
+        sender.sendMessage("§e/amnesia rollback <n> §7- Apply a shuffle from the history again");
     }
     
     @Override
@@ -280,17 +370,32 @@ public class AmnesiaCommand implements CommandExecutor, TabCompleter {
                 subCommands.add("reload");
             }
             
+            if (sender.hasPermission("amnesia.command.history")) {
+                subCommands.add("history");
+            }
+            
+            if (sender.hasPermission("amnesia.command.rollback")) {
+                subCommands.add("rollback");
+            }
+            
             return filterCompletions(subCommands, args[0]);
         } else if (args.length == 2) {
             // Second argument - subcommand options
             String subCommand = args[0].toLowerCase();
             
             if (subCommand.equals("shuffle") && sender.hasPermission("amnesia.command.shuffle")) {
-                return filterCompletions(Arrays.asList("random_item", "recipe_result", "seed"), args[1]);
+                return filterCompletions(Arrays.asList("random_item", "weighted_item", "recipe_result", "seed"), args[1]);
             } else if (subCommand.equals("timer") && sender.hasPermission("amnesia.command.timer")) {
                 return filterCompletions(Arrays.asList("enable", "disable", "interval"), args[1]);
             } else if (subCommand.equals("seed") && sender.hasPermission("amnesia.command.seed")) {
                 return filterCompletions(Arrays.asList("view", "set", "random"), args[1]);
+            } else if (subCommand.equals("rollback") && sender.hasPermission("amnesia.command.rollback")) {
+                List<String> indexes = new ArrayList<>();
+                int size = plugin.getRecipeManager().getHistory().getEntries().size();
+                for (int i = 1; i <= size; i++) {
+                    indexes.add(String.valueOf(i));
+                }
+                return filterCompletions(indexes, args[1]);
             }
         } else if (args.length == 3) {
             // Third argument - specific options
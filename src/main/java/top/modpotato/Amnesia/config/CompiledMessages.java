@@ -0,0 +1,72 @@
+package top.modpotato.Amnesia.config;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import top.modpotato.Amnesia.util.MessageUtil;
+
+/**
+ * Notification messages parsed into components when the config loads
+ * The ten-second countdown is rendered once for every second it can show, so broadcasting never parses
+ */
+public class CompiledMessages {
+    private static final int COUNTDOWN_SECONDS = 10;
+    
+    private final Component countdownFiveMinutes;
+    private final Component countdownOneMinute;
+    private final Component countdownThirtySeconds;
+    private final Component[] countdownTenSeconds;
+    private final Component shuffleStarted;
+    private final Component shuffleFinished;
+    
+    /**
+     * Compiles notification messages
+     * @param messages the MiniMessage strings from the config
+     */
+    public CompiledMessages(ConfigManager.NotificationMessages messages) {
+        this.countdownFiveMinutes = MessageUtil.compile(messages.countdownFiveMinutes);
+        this.countdownOneMinute = MessageUtil.compile(messages.countdownOneMinute);
+        this.countdownThirtySeconds = MessageUtil.compile(messages.countdownThirtySeconds);
+        this.shuffleStarted = MessageUtil.compile(messages.shuffleStarted);
+        this.shuffleFinished = MessageUtil.compile(messages.shuffleFinished);
+        
+        this.countdownTenSeconds = new Component[COUNTDOWN_SECONDS + 1];
+        for (int seconds = 0; seconds <= COUNTDOWN_SECONDS; seconds++) {
+            countdownTenSeconds[seconds] = MessageUtil.compile(messages.countdownTenSeconds,
+                    Placeholder.unparsed("seconds", String.valueOf(seconds)));
+        }
+    }
+    
+    /**
+     * Gets the countdown message for the remaining time
+     * @param seconds the remaining time in seconds
+     * @return the message, or null if there is no message for this time
+     */
+    public Component getCountdown(int seconds) {
+        if (seconds == 300) { // 5 minutes
+            return countdownFiveMinutes;
+        } else if (seconds == 60) { // 1 minute
+            return countdownOneMinute;
+        } else if (seconds == 30) { // 30 seconds
+            return countdownThirtySeconds;
+        } else if (seconds >= 0 && seconds <= COUNTDOWN_SECONDS) { // 10 seconds or less
+            return countdownTenSeconds[seconds];
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the message broadcast when a shuffle starts
+     * @return the message
+     */
+    public Component getShuffleStarted() {
+        return shuffleStarted;
+    }
+    
+    /**
+     * Gets the message broadcast when a shuffle is applied
+     * @return the message
+     */
+    public Component getShuffleFinished() {
+        return shuffleFinished;
+    }
+}
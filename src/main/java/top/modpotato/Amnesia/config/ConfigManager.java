@@ -3,6 +3,8 @@ package top.modpotato.Amnesia.config;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.recipe.util.MaterialCache;
+import top.modpotato.Amnesia.util.WriteBehindFile;
 
 import java.io.File;
 import java.io.IOException;
@@ -12,21 +14,41 @@ import java.util.List;
 
 /**
  * Manages the configuration for the Amnesia plugin
+ * Saves are written in the background, see {@link WriteBehindFile}
  */
 public class ConfigManager {
+    private static final List<String> CONFIG_KEYS = Arrays.asList(
+            "shuffle-mode", "timer-interval", "timer-enabled", "client-sync-mode", "client-sync-players-per-tick",
+            "apply-mode", "apply-tick-budget", "bulk-registration", "history-size", "metrics-enabled",
+            "metrics-address", "metrics-port", "excluded-recipes",
+            "excluded-random-items", "random-item-weights", "namespaces", "notification-intervals",
+            "notification-messages");
+    
     private final Main plugin;
     private FileConfiguration config;
     private File configFile;
+    private final WriteBehindFile writer;
     
     // Default configuration values
     private String shuffleMode = "random_item";
     private int timerInterval = 3600;
     private boolean timerEnabled = false;
     private String clientSyncMode = "resync";
+    private int clientSyncPlayersPerTick = 20;
+    private String applyMode = "diff";
+    private int applyTickBudget = 10;
+    private boolean bulkRegistration = true;
+    private int historySize = 20;
+    private boolean metricsEnabled = false;
+    private String metricsAddress = "127.0.0.1";
+    private int metricsPort = 9225;
     private List<String> excludedRecipes = new ArrayList<>();
     private List<String> excludedRandomItems = new ArrayList<>();
+    private RandomItemWeights randomItemWeights = RandomItemWeights.defaults();
+    private List<ShuffleNamespace> namespaces = new ArrayList<>();
     private List<Integer> notificationIntervals = Arrays.asList(300, 60, 30, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
     private NotificationMessages notificationMessages = new NotificationMessages();
+    private volatile CompiledMessages compiledMessages;
     
     /**
      * Creates a new ConfigManager
@@ -35,6 +57,7 @@ public class ConfigManager {
     public ConfigManager(Main plugin) {
         this.plugin = plugin;
         this.configFile = new File(plugin.getDataFolder(), "config.yml");
+        this.writer = new WriteBehindFile(plugin, configFile, this::serialize);
     }
     
     /**
@@ -53,59 +76,115 @@ public class ConfigManager {
             }
         }
         
-        config = YamlConfiguration.loadConfiguration(configFile);
+        FileConfiguration loaded = YamlConfiguration.loadConfiguration(configFile);
         
-        // Load values from config
-        shuffleMode = config.getString("shuffle-mode", shuffleMode);
-        timerInterval = config.getInt("timer-interval", timerInterval);
-        timerEnabled = config.getBoolean("timer-enabled", timerEnabled);
-        clientSyncMode = config.getString("client-sync-mode", clientSyncMode);
+        // Load values before publishing the config, the writer thread may change it once it is published
+        shuffleMode = loaded.getString("shuffle-mode", shuffleMode);
+        timerInterval = loaded.getInt("timer-interval", timerInterval);
+        timerEnabled = loaded.getBoolean("timer-enabled", timerEnabled);
+        clientSyncMode = loaded.getString("client-sync-mode", clientSyncMode);
+        clientSyncPlayersPerTick = loaded.getInt("client-sync-players-per-tick", clientSyncPlayersPerTick);
+        applyMode = loaded.getString("apply-mode", applyMode);
+        applyTickBudget = loaded.getInt("apply-tick-budget", applyTickBudget);
+        bulkRegistration = loaded.getBoolean("bulk-registration", bulkRegistration);
+        historySize = loaded.getInt("history-size", historySize);
+        metricsEnabled = loaded.getBoolean("metrics-enabled", metricsEnabled);
+        metricsAddress = loaded.getString("metrics-address", metricsAddress);
+        metricsPort = loaded.getInt("metrics-port", metricsPort);
         
-        excludedRecipes = config.getStringList("excluded-recipes");
-        excludedRandomItems = config.getStringList("excluded-random-items");
+        excludedRecipes = loaded.getStringList("excluded-recipes");
+        excludedRandomItems = loaded.getStringList("excluded-random-items");
+        randomItemWeights = RandomItemWeights.load(loaded.getConfigurationSection("random-item-weights"));
+        namespaces = ShuffleNamespace.loadAll(loaded.getConfigurationSection("namespaces"));
         
         // Load notification intervals
-        if (config.contains("notification-intervals")) {
-            notificationIntervals = config.getIntegerList("notification-intervals");
+        if (loaded.contains("notification-intervals")) {
+            notificationIntervals = loaded.getIntegerList("notification-intervals");
         }
         
         // Load notification messages
-        if (config.contains("notification-messages")) {
-            notificationMessages.countdownFiveMinutes = config.getString("notification-messages.countdown-5-minutes", 
+        if (loaded.contains("notification-messages")) {
+            notificationMessages.countdownFiveMinutes = loaded.getString("notification-messages.countdown-5-minutes", 
                     notificationMessages.countdownFiveMinutes);
-            notificationMessages.countdownOneMinute = config.getString("notification-messages.countdown-1-minute", 
+            notificationMessages.countdownOneMinute = loaded.getString("notification-messages.countdown-1-minute", 
                     notificationMessages.countdownOneMinute);
-            notificationMessages.countdownThirtySeconds = config.getString("notification-messages.countdown-30-seconds", 
+            notificationMessages.countdownThirtySeconds = loaded.getString("notification-messages.countdown-30-seconds", 
                     notificationMessages.countdownThirtySeconds);
-            notificationMessages.countdownTenSeconds = config.getString("notification-messages.countdown-10-seconds", 
+            notificationMessages.countdownTenSeconds = loaded.getString("notification-messages.countdown-10-seconds", 
                     notificationMessages.countdownTenSeconds);
-            notificationMessages.countdownStart = config.getString("notification-messages.countdown-start", 
+            notificationMessages.countdownStart = loaded.getString("notification-messages.countdown-start", 
                     notificationMessages.countdownStart);
-            notificationMessages.shuffleStarted = config.getString("notification-messages.shuffle-started", 
+            notificationMessages.shuffleStarted = loaded.getString("notification-messages.shuffle-started", 
                     notificationMessages.shuffleStarted);
-            notificationMessages.shuffleFinished = config.getString("notification-messages.shuffle-finished", 
+            notificationMessages.shuffleFinished = loaded.getString("notification-messages.shuffle-finished", 
                     notificationMessages.shuffleFinished);
         }
         
-        // Save config to ensure all default values are saved
-        saveConfig();
+        // Parse the messages now so broadcasts never have to
+        compiledMessages = new CompiledMessages(notificationMessages);
+        
+        boolean missingKeys = false;
+        for (String key : CONFIG_KEYS) {
+            if (!loaded.contains(key)) {
+                missingKeys = true;
+                break;
+            }
+        }
+        
+        synchronized (this) {
+            config = loaded;
+        }
+        
+        // Save config if any value is missing, so all default values are saved
+        if (missingKeys) {
+            saveConfig();
+        }
     }
     
     /**
      * Saves the configuration to the config.yml file
+     * The file is written in the background, saves made while a write is pending are combined into one
      */
     public void saveConfig() {
         if (config == null || configFile == null) {
             return;
         }
         
+        writer.markDirty();
+    }
+    
+    /**
+     * Writes any pending save and blocks until config.yml is written
+     * Should be called when the plugin is disabled
+     */
+    public void close() {
+        writer.close();
+    }
+    
+    /**
+     * Serializes the configuration, called on the writer thread
+     * @return the contents of config.yml
+     */
+    private synchronized String serialize() {
         // Set values in config
         config.set("shuffle-mode", shuffleMode);
         config.set("timer-interval", timerInterval);
         config.set("timer-enabled", timerEnabled);
         config.set("client-sync-mode", clientSyncMode);
+        config.set("client-sync-players-per-tick", clientSyncPlayersPerTick);
+        config.set("apply-mode", applyMode);
+        config.set("apply-tick-budget", applyTickBudget);
+        config.set("bulk-registration", bulkRegistration);
+        config.set("history-size", historySize);
+        config.set("metrics-enabled", metricsEnabled);
+        config.set("metrics-address", metricsAddress);
+        config.set("metrics-port", metricsPort);
         config.set("excluded-recipes", excludedRecipes);
         config.set("excluded-random-items", excludedRandomItems);
+        randomItemWeights.save(config.isConfigurationSection("random-item-weights")
+                ? config.getConfigurationSection("random-item-weights")
+                : config.createSection("random-item-weights"));
+        ShuffleNamespace.saveAll(config.createSection("namespaces"), namespaces);
         config.set("notification-intervals", notificationIntervals);
         
         // Set notification messages
@@ -117,11 +196,7 @@ public class ConfigManager {
         config.set("notification-messages.shuffle-started", notificationMessages.shuffleStarted);
         config.set("notification-messages.shuffle-finished", notificationMessages.shuffleFinished);
         
-        try {
-            config.save(configFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save config.yml: " + e.getMessage());
-        }
+        return config.saveToString();
     }
     
     /**
@@ -188,6 +263,134 @@ public class ConfigManager {
         this.clientSyncMode = clientSyncMode;
     }
     
+    /**
+     * Gets the maximum number of players whose client recipes are synced per tick
+     * @return the players per tick, 0 or less to sync everyone in one tick
+     */
+    public int getClientSyncPlayersPerTick() {
+        return clientSyncPlayersPerTick;
+    }
+    
+    /**
+     * Sets the maximum number of players whose client recipes are synced per tick
+     * @param clientSyncPlayersPerTick the players per tick, 0 or less to sync everyone in one tick
+     */
+    public void setClientSyncPlayersPerTick(int clientSyncPlayersPerTick) {
+        this.clientSyncPlayersPerTick = clientSyncPlayersPerTick;
+    }
+    
+    /**
+     * Gets the apply mode
+     * @return the apply mode
+     */
+    public String getApplyMode() {
+        return applyMode;
+    }
+    
+    /**
+     * Sets the apply mode
+     * @param applyMode the apply mode
+     */
+    public void setApplyMode(String applyMode) {
+        this.applyMode = applyMode;
+    }
+    
+    /**
+     * Gets the per-tick time budget for applying recipe changes in milliseconds
+     * @return the apply tick budget, 0 to apply everything in one tick
+     */
+    public int getApplyTickBudget() {
+        return applyTickBudget;
+    }
+    
+    /**
+     * Sets the per-tick time budget for applying recipe changes in milliseconds
+     * @param applyTickBudget the apply tick budget, 0 to apply everything in one tick
+     */
+    public void setApplyTickBudget(int applyTickBudget) {
+        this.applyTickBudget = applyTickBudget;
+    }
+    
+    /**
+     * Checks if recipe changes are registered in bulk with a single client update
+     * @return true if bulk registration is enabled, false otherwise
+     */
+    public boolean isBulkRegistration() {
+        return bulkRegistration;
+    }
+    
+    /**
+     * Sets whether recipe changes are registered in bulk with a single client update
+     * @param bulkRegistration true to enable bulk registration, false to disable
+     */
+    public void setBulkRegistration(boolean bulkRegistration) {
+        this.bulkRegistration = bulkRegistration;
+    }
+    
+    /**
+     * Gets the number of applied shuffles kept in the history
+     * @return the history size, 0 or less to disable the history
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+    
+    /**
+     * Sets the number of applied shuffles kept in the history
+     * @param historySize the history size, 0 or less to disable the history
+     */
+    public void setHistorySize(int historySize) {
+        this.historySize = historySize;
+    }
+    
+    /**
+     * Checks if the metrics endpoint is enabled
+     * @return true if metrics are served over HTTP, false otherwise
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    /**
+     * Sets whether the metrics endpoint is enabled
+     * @param metricsEnabled true to serve metrics over HTTP, false otherwise
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+    
+    /**
+     * Gets the address the metrics endpoint binds to
+     * @return the metrics address
+     */
+    public String getMetricsAddress() {
+        return metricsAddress;
+    }
+    
+    /**
+     * Sets the address the metrics endpoint binds to
+     * @param metricsAddress the metrics address
+     */
+    public void setMetricsAddress(String metricsAddress) {
+        this.metricsAddress = metricsAddress;
+    }
+    
+    /**
+     * Gets the port the metrics endpoint listens on
+     * @return the metrics port
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+    
+    /**
+     * Sets the port the metrics endpoint listens on
+     * @param metricsPort the metrics port
+     */
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+    
     /**
      * Gets the excluded recipes
      * @return the excluded recipes
@@ -204,6 +407,22 @@ public class ConfigManager {
         return excludedRandomItems;
     }
     
+    /**
+     * Gets the item weights used by the weighted_item shuffle mode
+     * @return the random item weights
+     */
+    public RandomItemWeights getRandomItemWeights() {
+        return randomItemWeights;
+    }
+    
+    /**
+     * Gets the shuffle namespaces
+     * @return the namespaces, in config order
+     */
+    public List<ShuffleNamespace> getNamespaces() {
+        return namespaces;
+    }
+    
     /**
      * Gets the notification intervals
      * @return the notification intervals
@@ -220,11 +439,26 @@ public class ConfigManager {
         return notificationMessages;
     }
     
+    /**
+     * Gets the notification messages parsed into components
+     * @return the compiled notification messages
+     */
+    public CompiledMessages getCompiledMessages() {
+        return compiledMessages;
+    }
+    
     /**
      * Reloads the configuration from the config.yml file
      */
     public void reloadConfig() {
         loadConfig();
+        MaterialCache.invalidate();
+        
+        // A shuffle prepared with the old config would no longer match it
+        if (plugin.getRecipeManager() != null) {
+            plugin.getRecipeManager().invalidatePreparedShuffle();
+            plugin.getRecipeManager().getNamespaceAssignments().refresh();
+        }
     }
     
     /**
@@ -3,24 +3,34 @@ package top.modpotato.Amnesia.config;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.util.WriteBehindFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 /**
  * Manages the persistent data for the Amnesia plugin
+ * Saves are written in the background, see {@link WriteBehindFile}
  */
 public class DataManager {
+    private static final List<String> DATA_KEYS = Arrays.asList(
+            "seed", "user-set-seed", "is-shuffled", "last-shuffle-time", "next-shuffle-time");
+    
     private final Main plugin;
     private FileConfiguration data;
     private File dataFile;
+    private final WriteBehindFile writer;
     
     // Persistent data values
     private long seed;
     private boolean userSetSeed = false;
     private boolean isShuffled = false;
     private long lastShuffleTime = 0;
+    private long nextShuffleTime = 0;
+    private String rollbackMode = null;
     
     /**
      * Creates a new DataManager
@@ -30,6 +40,7 @@ public class DataManager {
         this.plugin = plugin;
         this.seed = new Random().nextLong();
         this.dataFile = new File(plugin.getDataFolder(), "data.yml");
+        this.writer = new WriteBehindFile(plugin, dataFile, this::serialize);
     }
     
     /**
@@ -45,44 +56,72 @@ public class DataManager {
             }
         }
         
-        data = YamlConfiguration.loadConfiguration(dataFile);
+        FileConfiguration loaded = YamlConfiguration.loadConfiguration(dataFile);
         
-        // Load values from data file
-        if (data.contains("seed")) {
-            seed = data.getLong("seed");
-            userSetSeed = data.getBoolean("user-set-seed", false);
-        } else {
-            seed = new Random().nextLong();
-            userSetSeed = false;
+        // Read the values from the loaded file and publish them together with it,
+        // the writer thread serializes the data under the same lock
+        synchronized (this) {
+            data = loaded;
+            
+            // Load values from data file
+            if (loaded.contains("seed")) {
+                seed = loaded.getLong("seed");
+                userSetSeed = loaded.getBoolean("user-set-seed", false);
+            } else {
+                seed = new Random().nextLong();
+                userSetSeed = false;
+            }
+            
+            // Load shuffle state
+            isShuffled = loaded.getBoolean("is-shuffled", false);
+            lastShuffleTime = loaded.getLong("last-shuffle-time", 0);
+            nextShuffleTime = loaded.getLong("next-shuffle-time", 0);
+            rollbackMode = loaded.getString("rollback-mode");
         }
         
-        // Load shuffle state
-        isShuffled = data.getBoolean("is-shuffled", false);
-        lastShuffleTime = data.getLong("last-shuffle-time", 0);
-        
-        // Save data to ensure all default values are saved
-        saveData();
+        // Save data if any value is missing, so the defaults and a generated seed are kept
+        for (String key : DATA_KEYS) {
+            if (!loaded.contains(key)) {
+                saveData();
+                break;
+            }
+        }
     }
     
     /**
      * Saves the data to the data.yml file
+     * The file is written in the background, saves made while a write is pending are combined into one
      */
     public void saveData() {
         if (data == null || dataFile == null) {
             return;
         }
         
+        writer.markDirty();
+    }
+    
+    /**
+     * Writes any pending save and blocks until data.yml is written
+     * Should be called when the plugin is disabled
+     */
+    public void close() {
+        writer.close();
+    }
+    
+    /**
+     * Serializes the data, called on the writer thread
+     * @return the contents of data.yml
+     */
+    private synchronized String serialize() {
         // Set values in data
         data.set("seed", seed);
         data.set("user-set-seed", userSetSeed);
         data.set("is-shuffled", isShuffled);
         data.set("last-shuffle-time", lastShuffleTime);
+        data.set("next-shuffle-time", nextShuffleTime);
+        data.set("rollback-mode", rollbackMode);
         
-        try {
-            data.save(dataFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save data.yml: " + e.getMessage());
-        }
+        return data.saveToString();
     }
     
     /**
@@ -145,4 +184,37 @@ public class DataManager {
     public long getLastShuffleTime() {
         return lastShuffleTime;
     }
+    
+    /**
+     * Gets the time when the timer shuffles recipes next
+     * @return the next shuffle time in milliseconds since epoch, or 0 if no timer shuffle is due
+     */
+    public long getNextShuffleTime() {
+        return nextShuffleTime;
+    }
+    
+    /**
+     * Sets the time when the timer shuffles recipes next
+     * @param nextShuffleTime the next shuffle time in milliseconds since epoch, or 0 if no timer shuffle is due
+     */
+    public void setNextShuffleTime(long nextShuffleTime) {
+        this.nextShuffleTime = nextShuffleTime;
+    }
+    
+    /**
+     * Gets the shuffle mode of the shuffle a rollback applied
+     * It overrides the configured mode until the next shuffle, so a restart restores the rolled back shuffle
+     * @return the shuffle mode, or null if the current shuffle was not rolled back to
+     */
+    public String getRollbackMode() {
+        return rollbackMode;
+    }
+    
+    /**
+     * Sets the shuffle mode of the shuffle a rollback applied
+     * @param rollbackMode the shuffle mode, or null once a shuffle or restore replaces the rolled back one
+     */
+    public void setRollbackMode(String rollbackMode) {
+        this.rollbackMode = rollbackMode;
+    }
 } 
\ No newline at end of file
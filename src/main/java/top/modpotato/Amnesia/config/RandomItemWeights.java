@@ -0,0 +1,84 @@
+package top.modpotato.Amnesia.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The item weights used by the weighted_item shuffle mode
+ * An item's weight comes from the first match of: its item key, the highest weight of its tags, its rarity,
+ * then the default weight
+ * @param defaultWeight the weight of items that match nothing else
+ * @param items the weights by item key, such as minecraft:netherite_block
+ * @param tags the weights by item tag key, such as minecraft:logs
+ * @param rarities the weights by rarity name, such as common
+ */
+public record RandomItemWeights(double defaultWeight, Map<String, Double> items, Map<String, Double> tags,
+                                Map<String, Double> rarities) {
+    
+    /**
+     * Creates new RandomItemWeights, copying the maps
+     */
+    public RandomItemWeights {
+        items = Collections.unmodifiableMap(new LinkedHashMap<>(items));
+        tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        rarities = Collections.unmodifiableMap(new LinkedHashMap<>(rarities));
+    }
+    
+    /**
+     * Creates the default weights, favouring common items over rare ones
+     * @return the default weights
+     */
+    public static RandomItemWeights defaults() {
+        Map<String, Double> rarities = new LinkedHashMap<>();
+        rarities.put("common", 1.0);
+        rarities.put("uncommon", 0.5);
+        rarities.put("rare", 0.25);
+        rarities.put("epic", 0.1);
+        return new RandomItemWeights(1.0, Collections.emptyMap(), Collections.emptyMap(), rarities);
+    }
+    
+    /**
+     * Loads weights from a config section
+     * @param section the random-item-weights section, or null to use the defaults
+     * @return the loaded weights
+     */
+    public static RandomItemWeights load(ConfigurationSection section) {
+        RandomItemWeights defaults = defaults();
+        if (section == null) {
+            return defaults;
+        }
+        
+        return new RandomItemWeights(
+                section.getDouble("default", defaults.defaultWeight()),
+                section.isConfigurationSection("items") ? loadMap(section.getConfigurationSection("items")) : defaults.items(),
+                section.isConfigurationSection("tags") ? loadMap(section.getConfigurationSection("tags")) : defaults.tags(),
+                section.isConfigurationSection("rarities") ? loadMap(section.getConfigurationSection("rarities")) : defaults.rarities());
+    }
+    
+    /**
+     * Writes the weights into a config section
+     * @param section the random-item-weights section
+     */
+    public void save(ConfigurationSection section) {
+        section.set("default", defaultWeight);
+        section.set("items", items);
+        section.set("tags", tags);
+        section.set("rarities", rarities);
+    }
+    
+    /**
+     * Loads a map of keys to weights, keys are lower-cased
+     * @param section the section to load
+     * @return the weights by key
+     */
+    private static Map<String, Double> loadMap(ConfigurationSection section) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            weights.put(key.toLowerCase(), section.getDouble(key));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,79 @@
+package top.modpotato.Amnesia.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named shuffle that players on its teams or in its permission groups get instead of the global one
+ * Only used by the virtual apply mode, where results can differ per player
+ * @param name the namespace name
+ * @param seed the namespace seed, combined with the global seed on every shuffle
+ * @param teams the scoreboard team names assigned to the namespace
+ * @param groups the permission group names assigned to the namespace, checked as the group.&lt;name&gt; permission
+ */
+public record ShuffleNamespace(String name, long seed, List<String> teams, List<String> groups) {
+    
+    /**
+     * Creates a new ShuffleNamespace, copying the lists
+     */
+    public ShuffleNamespace {
+        teams = List.copyOf(teams);
+        groups = List.copyOf(groups);
+    }
+    
+    /**
+     * Gets the seed this namespace shuffles with for a global seed
+     * Namespaces reshuffle along with the global shuffle, and two namespaces only match if their seeds do
+     * @param globalSeed the global seed
+     * @return the seed of this namespace's shuffle
+     */
+    public long shuffleSeed(long globalSeed) {
+        return Long.rotateLeft(globalSeed, 32) ^ (seed * 0x9E3779B97F4A7C15L);
+    }
+    
+    /**
+     * Gets the permission that assigns a player to this namespace, regardless of teams and groups
+     * @return the permission node
+     */
+    public String permission() {
+        return "amnesia.namespace." + name;
+    }
+    
+    /**
+     * Loads namespaces from a config section
+     * @param section the namespaces section, or null if there is none
+     * @return the loaded namespaces, in config order
+     */
+    public static List<ShuffleNamespace> loadAll(ConfigurationSection section) {
+        if (section == null) {
+            return Collections.emptyList();
+        }
+        
+        List<ShuffleNamespace> namespaces = new ArrayList<>();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection namespace = section.getConfigurationSection(name);
+            if (namespace == null) {
+                continue;
+            }
+            namespaces.add(new ShuffleNamespace(name.toLowerCase(), namespace.getLong("seed", name.hashCode()),
+                    namespace.getStringList("teams"), namespace.getStringList("groups")));
+        }
+        return Collections.unmodifiableList(namespaces);
+    }
+    
+    /**
+     * Writes namespaces into a config section
+     * @param section the namespaces section
+     * @param namespaces the namespaces
+     */
+    public static void saveAll(ConfigurationSection section, List<ShuffleNamespace> namespaces) {
+        for (ShuffleNamespace namespace : namespaces) {
+            section.set(namespace.name() + ".seed", namespace.seed());
+            section.set(namespace.name() + ".teams", namespace.teams());
+            section.set(namespace.name() + ".groups", namespace.groups());
+        }
+    }
+}
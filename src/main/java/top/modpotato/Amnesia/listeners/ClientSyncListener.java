@@ -0,0 +1,79 @@
+package top.modpotato.Amnesia.listeners;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRecipeBookSettingsChangeEvent;
+import top.modpotato.Amnesia.Main;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Keeps per-player client sync state in step with players joining, leaving and using crafting interfaces
+ */
+public class ClientSyncListener implements Listener {
+    private static final Set<InventoryType> CRAFTING_INVENTORIES = EnumSet.of(
+            InventoryType.WORKBENCH,
+            InventoryType.CRAFTER,
+            InventoryType.FURNACE,
+            InventoryType.BLAST_FURNACE,
+            InventoryType.SMOKER,
+            InventoryType.STONECUTTER);
+    
+    private final Main plugin;
+    
+    /**
+     * Creates a new ClientSyncListener
+     * @param plugin the plugin instance
+     */
+    public ClientSyncListener(Main plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Handles a player joining
+     * @param event the event
+     */
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getRecipeManager().handlePlayerJoin(event.getPlayer());
+    }
+    
+    /**
+     * Handles a player leaving, dropping what was tracked for them
+     * @param event the event
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getRecipeManager().handlePlayerQuit(event.getPlayer());
+    }
+    
+    /**
+     * Handles a player opening an inventory, only crafting-type inventories matter
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        if (event.getPlayer() instanceof Player player
+                && CRAFTING_INVENTORIES.contains(event.getInventory().getType())) {
+            plugin.getRecipeManager().handleRecipeBookNeeded(player);
+        }
+    }
+    
+    /**
+     * Handles a player opening their recipe book
+     * @param event the event
+     */
+    @EventHandler
+    public void onRecipeBookSettingsChange(PlayerRecipeBookSettingsChangeEvent event) {
+        if (event.isOpen()) {
+            plugin.getRecipeManager().handleRecipeBookNeeded(event.getPlayer());
+        }
+    }
+}
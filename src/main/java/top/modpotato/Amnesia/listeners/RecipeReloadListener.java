@@ -0,0 +1,30 @@
+package top.modpotato.Amnesia.listeners;
+
+import io.papermc.paper.event.server.ServerResourcesReloadedEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import top.modpotato.Amnesia.Main;
+
+/**
+ * Keeps the shuffle up to date when the server reloads its datapacks
+ */
+public class RecipeReloadListener implements Listener {
+    private final Main plugin;
+    
+    /**
+     * Creates a new RecipeReloadListener
+     * @param plugin the plugin instance
+     */
+    public RecipeReloadListener(Main plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Handles the server reloading its resources, e.g. after /minecraft:reload
+     * @param event the event
+     */
+    @EventHandler
+    public void onServerResourcesReloaded(ServerResourcesReloadedEvent event) {
+        plugin.getRecipeManager().handleRecipeReload();
+    }
+}
@@ -0,0 +1,160 @@
+package top.modpotato.Amnesia.listeners;
+
+import com.destroystokyo.paper.event.inventory.PrepareResultEvent;
+import io.papermc.paper.event.player.PlayerStonecutterRecipeSelectEvent;
+import org.bukkit.Keyed;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockCookEvent;
+import org.bukkit.event.block.CrafterCraftEvent;
+import org.bukkit.event.inventory.FurnaceSmeltEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.recipe.apply.VirtualResultTable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rewrites crafting, campfire and stonecutting results for the virtual apply mode
+ * The handlers run constantly on a busy server, so they only look up the event's recipe key in a prebuilt table
+ * PrepareItemCraftEvent#getRecipe converts the server recipe into a new Bukkit recipe on every call, so crafting
+ * grid lookups still allocate, that cost is the server's and can't be avoided from the event
+ * Furnaces, blast furnaces and smokers keep their original results: a furnace only smelts while its output slot
+ * holds nothing or the recipe's original result, so a remapped result would jam it after the first item
+ * Players in a shuffle namespace get that namespace's results, crafters and campfires use the global shuffle
+ * Events get a copy of the table's shared result, the server and other plugins are free to modify an event's result
+ */
+public class VirtualRecipeListener implements Listener {
+    private final Main plugin;
+    private final Map<UUID, NamespacedKey> stonecutterSelections = new ConcurrentHashMap<>();
+    
+    /**
+     * Creates a new VirtualRecipeListener
+     * @param plugin the plugin instance
+     */
+    public VirtualRecipeListener(Main plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Handles a crafting grid preparing its result
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPrepareItemCraft(PrepareItemCraftEvent event) {
+        ItemStack result = lookup(event.getRecipe(), event.getView().getPlayer());
+        if (result != null) {
+            event.getInventory().setResult(result);
+        }
+    }
+    
+    /**
+     * Handles a crafter crafting an item
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onCrafterCraft(CrafterCraftEvent event) {
+        ItemStack result = lookup(event.getRecipe(), null);
+        if (result != null) {
+            event.setResult(result);
+        }
+    }
+    
+    /**
+     * Handles a campfire cooking an item
+     * Campfires drop their result instead of keeping it in an output slot, so it can be remapped safely
+     * Furnace smelting shares this event's handlers, those keep their original result
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockCook(BlockCookEvent event) {
+        if (event instanceof FurnaceSmeltEvent) {
+            return;
+        }
+        
+        ItemStack result = lookup(event.getRecipe(), null);
+        if (result != null) {
+            event.setResult(result);
+        }
+    }
+    
+    /**
+     * Remembers which stonecutter recipe a player selected, its result slot is filled right after
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStonecutterRecipeSelect(PlayerStonecutterRecipeSelectEvent event) {
+        stonecutterSelections.put(event.getPlayer().getUniqueId(), event.getStonecuttingRecipe().getKey());
+    }
+    
+    /**
+     * Handles a stonecutter filling its result slot for the selected recipe
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPrepareResult(PrepareResultEvent event) {
+        if (event.getInventory().getType() != InventoryType.STONECUTTER) {
+            return;
+        }
+        
+        VirtualResultTable table = plugin.getRecipeManager().getVirtualResults();
+        HumanEntity player = event.getView().getPlayer();
+        NamespacedKey key = stonecutterSelections.get(player.getUniqueId());
+        if (table.isEmpty() || key == null) {
+            return;
+        }
+        
+        // An empty result means the input changed and nothing is selected anymore
+        ItemStack current = event.getResult();
+        ItemStack result = table.get(key, namespaceOf(player));
+        if (result != null && current != null && !current.isEmpty()) {
+            event.setResult(result.clone());
+        }
+    }
+    
+    /**
+     * Forgets a player's stonecutter selection when they leave
+     * @param event the event
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        stonecutterSelections.remove(event.getPlayer().getUniqueId());
+    }
+    
+    /**
+     * Looks up the remapped result of a recipe
+     * @param recipe the recipe, may be null
+     * @param crafter the player crafting, or null for blocks, which always use the global shuffle
+     * @return a copy of the remapped result, or null if the recipe keeps its result
+     */
+    private ItemStack lookup(Recipe recipe, HumanEntity crafter) {
+        VirtualResultTable table = plugin.getRecipeManager().getVirtualResults();
+        if (table.isEmpty() || !(recipe instanceof Keyed keyed)) {
+            return null;
+        }
+        ItemStack result = table.get(keyed.getKey(), namespaceOf(crafter));
+        return result != null ? result.clone() : null;
+    }
+    
+    /**
+     * Gets the shuffle namespace of a player
+     * @param entity the player, may be null
+     * @return the namespace name, or null for the global shuffle
+     */
+    private String namespaceOf(HumanEntity entity) {
+        if (entity instanceof Player player) {
+            return plugin.getRecipeManager().getNamespaceAssignments().get(player);
+        }
+        return null;
+    }
+}
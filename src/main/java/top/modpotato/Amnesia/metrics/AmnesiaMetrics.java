@@ -0,0 +1,129 @@
+package top.modpotato.Amnesia.metrics;
+
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the plugin's metrics and renders them in the Prometheus text format
+ * Counters and histograms are adders, so recording from the tick thread never waits on a scrape
+ */
+public class AmnesiaMetrics {
+    private static final double[] PHASE_BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final double[] SYNC_BUCKETS = {0.0001, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1};
+    
+    private final Main plugin;
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+    private final Histogram clientSync = new Histogram(SYNC_BUCKETS);
+    private final LongAdder builderMisses = new LongAdder();
+    private final LongAdder shufflesApplied = new LongAdder();
+    
+    /**
+     * Creates a new AmnesiaMetrics
+     * @param plugin the plugin instance
+     */
+    public AmnesiaMetrics(Main plugin) {
+        this.plugin = plugin;
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Histogram(PHASE_BUCKETS));
+        }
+    }
+    
+    /**
+     * Records how long a shuffle phase took
+     * @param phase the phase
+     * @param nanos the duration in nanoseconds
+     */
+    public void observePhase(Phase phase, long nanos) {
+        phases.get(phase).observeNanos(nanos);
+    }
+    
+    /**
+     * Records how long syncing one player's recipes took
+     * @param nanos the duration in nanoseconds
+     */
+    public void observeClientSync(long nanos) {
+        clientSync.observeNanos(nanos);
+    }
+    
+    /**
+     * Records a recipe that could not be built when it was registered
+     */
+    public void recordBuilderMiss() {
+        builderMisses.increment();
+    }
+    
+    /**
+     * Records a shuffle that was applied
+     */
+    public void recordShuffleApplied() {
+        shufflesApplied.increment();
+    }
+    
+    /**
+     * Renders every metric in the Prometheus text format
+     * @return the metrics
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        
+        out.append("# HELP amnesia_shuffle_phase_seconds Time spent in each phase of a shuffle\n");
+        out.append("# TYPE amnesia_shuffle_phase_seconds histogram\n");
+        for (Map.Entry<Phase, Histogram> entry : phases.entrySet()) {
+            entry.getValue().write(out, "amnesia_shuffle_phase_seconds", "phase=\"" + entry.getKey().label + "\"");
+        }
+        
+        out.append("# HELP amnesia_client_sync_seconds Time spent syncing one player's recipes\n");
+        out.append("# TYPE amnesia_client_sync_seconds histogram\n");
+        clientSync.write(out, "amnesia_client_sync_seconds", "");
+        
+        out.append("# HELP amnesia_builder_misses_total Recipes that could not be built and were skipped\n");
+        out.append("# TYPE amnesia_builder_misses_total counter\n");
+        out.append("amnesia_builder_misses_total ").append(builderMisses.sum()).append('\n');
+        
+        out.append("# HELP amnesia_shuffles_applied_total Shuffles, restores and rollbacks that were applied\n");
+        out.append("# TYPE amnesia_shuffles_applied_total counter\n");
+        out.append("amnesia_shuffles_applied_total ").append(shufflesApplied.sum()).append('\n');
+        
+        out.append("# HELP amnesia_recipes Original recipes managed by the plugin, by type\n");
+        out.append("# TYPE amnesia_recipes gauge\n");
+        for (Map.Entry<RecipeType, Integer> entry : plugin.getRecipeManager().getRecipeCountsByType().entrySet()) {
+            out.append("amnesia_recipes{type=\"").append(entry.getKey().name().toLowerCase()).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+        
+        out.append("# HELP amnesia_shuffled Whether recipes are currently shuffled\n");
+        out.append("# TYPE amnesia_shuffled gauge\n");
+        out.append("amnesia_shuffled ").append(plugin.getDataManager().isShuffled() ? 1 : 0).append('\n');
+        
+        out.append("# HELP amnesia_timer_running Whether the reshuffle timer is running\n");
+        out.append("# TYPE amnesia_timer_running gauge\n");
+        out.append("amnesia_timer_running ").append(plugin.getTimerManager().isRunning() ? 1 : 0).append('\n');
+        
+        out.append("# HELP amnesia_timer_seconds_until_shuffle Seconds until the timer shuffles recipes, -1 if stopped\n");
+        out.append("# TYPE amnesia_timer_seconds_until_shuffle gauge\n");
+        out.append("amnesia_timer_seconds_until_shuffle ").append(plugin.getTimerManager().getSecondsUntilShuffle())
+                .append('\n');
+        
+        return out.toString();
+    }
+    
+    /**
+     * The phases of a shuffle
+     */
+    public enum Phase {
+        STORE("store"),
+        PREPARE("prepare"),
+        APPLY("apply"),
+        SYNC("sync");
+        
+        private final String label;
+        
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+}
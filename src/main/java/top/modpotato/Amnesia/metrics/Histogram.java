@@ -0,0 +1,62 @@
+package top.modpotato.Amnesia.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Prometheus histogram of durations in seconds
+ * Buckets are adders, so observing never contends with other threads observing or a scrape reading
+ */
+public class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+    
+    /**
+     * Creates a new Histogram
+     * @param bounds the upper bounds of the buckets in seconds, ascending
+     */
+    public Histogram(double... bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * Records a duration
+     * @param nanos the duration in nanoseconds
+     */
+    public void observeNanos(long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        int bucket = 0;
+        while (bucket < bounds.length && seconds > bounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(seconds);
+    }
+    
+    /**
+     * Writes the histogram's samples in the Prometheus text format
+     * @param out the output
+     * @param name the metric name
+     * @param labels the labels shared by every sample, without braces, may be empty
+     */
+    public void write(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(bounds[i]).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += buckets[bounds.length].sum();
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sum.sum()).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,102 @@
+package top.modpotato.Amnesia.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import top.modpotato.Amnesia.Main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the plugin's metrics over HTTP for Prometheus to scrape, using the JDK's built-in HTTP server
+ * Requests are handled on a single background thread, never on the tick thread
+ */
+public class MetricsExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    private final Main plugin;
+    private final AmnesiaMetrics metrics;
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    /**
+     * Creates a new MetricsExporter
+     * @param plugin the plugin instance
+     * @param metrics the metrics to serve
+     */
+    public MetricsExporter(Main plugin, AmnesiaMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Starts serving metrics at /metrics
+     * @param address the address to bind to
+     * @param port the port to bind to, 0 for any free port
+     * @throws IOException if the server could not be bound
+     */
+    public void start(String address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, plugin.getName() + " metrics exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        plugin.getLogger().info("Serving metrics at http://" + address + ":" + getPort() + "/metrics");
+    }
+    
+    /**
+     * Gets the port metrics are served on
+     * @return the bound port, or -1 if the exporter is not running
+     */
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+    
+    /**
+     * Stops serving metrics
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+    
+    /**
+     * Answers a scrape
+     * @param exchange the HTTP exchange
+     * @throws IOException if the response could not be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -1,33 +1,79 @@
 package top.modpotato.Amnesia.recipe;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
 import top.modpotato.Amnesia.Main;
-import top.modpotato.Amnesia.recipe.builder.RecipeBuilderFactory;
+import top.modpotato.Amnesia.config.RandomItemWeights;
+import top.modpotato.Amnesia.config.ShuffleNamespace;
+import top.modpotato.Amnesia.metrics.AmnesiaMetrics;
+import top.modpotato.Amnesia.recipe.apply.NamespaceAssignments;
+import top.modpotato.Amnesia.recipe.apply.RecipeApplyPipeline;
+import top.modpotato.Amnesia.recipe.apply.RecipeChangeSet;
+import top.modpotato.Amnesia.recipe.apply.ShuffleCoordinator;
+import top.modpotato.Amnesia.recipe.apply.VirtualResultTable;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeType;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+import top.modpotato.Amnesia.recipe.history.ShuffleHistory;
+import top.modpotato.Amnesia.recipe.history.ShuffleHistoryEntry;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlan;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlanCodec;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlanStore;
+import top.modpotato.Amnesia.recipe.sync.ClientSyncScheduler;
+import top.modpotato.Amnesia.recipe.sync.DeltaClientSync;
+import top.modpotato.Amnesia.recipe.sync.LazyClientSync;
+import top.modpotato.Amnesia.recipe.util.AliasTable;
 import top.modpotato.Amnesia.recipe.util.MaterialCache;
 import top.modpotato.Amnesia.recipe.util.RecipeKeyUtil;
+import top.modpotato.Amnesia.recipe.util.ShuffleAlgorithms;
+import top.modpotato.Amnesia.trace.ClientSyncEvent;
+import top.modpotato.Amnesia.trace.PrepareShuffleEvent;
+import top.modpotato.Amnesia.trace.StoreRecipesEvent;
 import top.modpotato.Amnesia.util.MessageUtil;
 import top.modpotato.Amnesia.util.SchedulerUtil;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 /**
  * Manages recipe shuffling
+ * Recipes are kept as immutable descriptors, real Recipe objects are only built when they are registered
+ * The original and shuffled maps are replaced as a whole rather than modified, so they can be read from any thread
+ * Shuffles, restores and rollbacks all go through a {@link ShuffleCoordinator}, so only the newest one is applied
  */
 public class RecipeManager {
     private final Main plugin;
-    private final Map<NamespacedKey, Recipe> originalRecipes = new HashMap<>();
-    private final Map<NamespacedKey, Recipe> shuffledRecipes = new HashMap<>();
+    private final RecipeInterner interner = new RecipeInterner();
+    private volatile Map<NamespacedKey, RecipeDescriptor> originalRecipes = Collections.emptyMap();
+    private volatile long registryFingerprint = ShufflePlan.registryFingerprint(Collections.emptyMap());
+    private volatile Map<NamespacedKey, ResultDescriptor> shuffledResults = Collections.emptyMap();
+    private final Map<NamespacedKey, ResultDescriptor> registeredResults = new HashMap<>();
+    private final ShufflePlanStore planStore;
+    private final ShuffleHistory history;
+    private final ClientSyncScheduler clientSync;
+    private final ShuffleCoordinator coordinator;
+    private final DeltaClientSync deltaSync = new DeltaClientSync();
+    private final LazyClientSync lazySync = new LazyClientSync();
+    private RecipeApplyPipeline activePipeline;
+    private volatile VirtualResultTable virtualResults = VirtualResultTable.EMPTY;
+    private final NamespaceAssignments namespaceAssignments;
+    private volatile PreparedShuffle preparedShuffle;
+    private volatile boolean nextShufflePending;
+    private final AtomicLong preparedGeneration = new AtomicLong();
     
     /**
      * Creates a new RecipeManager
@@ -35,6 +81,11 @@ public class RecipeManager {
      */
     public RecipeManager(Main plugin) {
         this.plugin = plugin;
+        this.planStore = new ShufflePlanStore(plugin);
+        this.history = new ShuffleHistory(plugin);
+        this.clientSync = new ClientSyncScheduler(plugin);
+        this.coordinator = new ShuffleCoordinator(plugin);
+        this.namespaceAssignments = new NamespaceAssignments(plugin);
     }
     
     /**
@@ -42,13 +93,53 @@ public class RecipeManager {
      * This should be called after the plugin is enabled
      */
     public void initialize() {
+        history.load();
+        namespaceAssignments.refresh();
+        
         // Check if recipes were shuffled before restart
         if (plugin.getDataManager().isShuffled()) {
             plugin.getLogger().info("Recipes were shuffled before restart, restoring shuffle state...");
-            shuffleRecipes(false); // Restore shuffle state without announcement
+            long seed = plugin.getDataManager().getSeed();
+            String shuffleMode = getCurrentShuffleMode();
+            
+            // Restore shuffle state without announcement
+            coordinator.submit(superseded -> prepareRestore(shuffleMode, seed, superseded),
+                    prepared -> applyPlan(prepared, false, () -> {}));
         }
     }
     
+    /**
+     * Prepares the shuffle to restore after a restart
+     * The stored plan is used as it is if it was computed from the current seed, mode, exclusions and recipes,
+     * otherwise the shuffle is prepared again
+     * Can be called asynchronously
+     * @param shuffleMode the shuffle mode
+     * @param seed the seed
+     * @param superseded returns true once a newer shuffle was requested
+     * @return the shuffle to apply, or null if a newer shuffle was requested
+     */
+    private PreparedShuffle prepareRestore(String shuffleMode, long seed, BooleanSupplier superseded) {
+        if (originalRecipes.isEmpty()) {
+            SchedulerUtil.runTaskAsync(plugin, this::storeOriginalRecipes).join();
+        }
+        
+        ShufflePlan plan = planStore.load(interner);
+        if (plan == null) {
+            return prepareShuffle(shuffleMode, seed, superseded);
+        }
+        
+        if (plan.getFingerprint() != computeFingerprint(seed, shuffleMode)) {
+            plugin.getLogger().info("Stored shuffle plan is out of date, recomputing shuffle");
+            planStore.invalidate();
+            return prepareShuffle(shuffleMode, seed, superseded);
+        }
+        
+        // Use the stored results as they are
+        Map<NamespacedKey, ResultDescriptor> restored = retainOriginalRecipes(plan);
+        plugin.getLogger().info("Restored " + restored.size() + " recipes from the stored shuffle plan");
+        return withNamespaces(ShufflePlan.of(plan.getFingerprint(), restored), shuffleMode, seed);
+    }
+    
     /**
      * Shuffles recipes according to the configured mode
      */
@@ -63,113 +154,577 @@ public class RecipeManager {
     public void shuffleRecipes(boolean announce) {
         // Get the seed from data
         long seed = plugin.getDataManager().getSeed();
-        Random random = new Random(seed);
         
         // Get the shuffle mode from config
         String shuffleMode = plugin.getConfigManager().getShuffleMode();
         
         // Announce shuffle start if needed
         if (announce) {
-            MessageUtil.broadcastMessage(plugin.getConfigManager().getNotificationMessages().shuffleStarted);
+            MessageUtil.broadcast(plugin.getConfigManager().getCompiledMessages().getShuffleStarted());
+        }
+        
+        // Prepare recipe data asynchronously, a newer shuffle supersedes this one
+        coordinator.submit(superseded -> prepareShuffle(shuffleMode, seed, superseded), prepared -> {
+            // A new shuffle replaces any rolled back one, the configured mode applies again
+            plugin.getDataManager().setRollbackMode(null);
+            applyPlan(prepared, announce, () -> recordHistory(prepared.plan(), shuffleMode, seed));
+        });
+    }
+    
+    /**
+     * Gets the shuffle mode of the current shuffle
+     * @return the mode of the shuffle a rollback applied, or the configured mode if there was no rollback since
+     */
+    private String getCurrentShuffleMode() {
+        String rollbackMode = plugin.getDataManager().getRollbackMode();
+        return rollbackMode != null ? rollbackMode : plugin.getConfigManager().getShuffleMode();
+    }
+    
+    /**
+     * Prepares the next shuffle in the background so only the apply step is left when it is due
+     * Namespaces and the virtual result table are prepared along with the plan
+     * The shuffle is kept until the next shuffle takes it, or until the seed or config change
+     * Must be called on the main thread
+     */
+    public void prepareNextShuffle() {
+        nextShufflePending = true;
+        
+        if (originalRecipes.isEmpty()) {
+            storeOriginalRecipes();
+        }
+        
+        long seed = plugin.getDataManager().getSeed();
+        String shuffleMode = plugin.getConfigManager().getShuffleMode();
+        long fingerprint = computeFingerprint(seed, shuffleMode);
+        
+        // Nothing to do if the prepared plan is already for these inputs
+        PreparedShuffle current = preparedShuffle;
+        if (current != null && current.plan().getFingerprint() == fingerprint) {
+            return;
+        }
+        
+        long generation = preparedGeneration.incrementAndGet();
+        Collection<NamespacedKey> keys = originalRecipes.keySet();
+        SchedulerUtil.runAsync(plugin, () -> {
+            ShufflePlan plan = ShufflePlan.of(fingerprint, prepareShuffledResults(shuffleMode, seed, keys));
+            PreparedShuffle prepared = withNamespaces(plan, shuffleMode, seed);
+            
+            // Drop the plan if it was invalidated or taken while it was being prepared
+            if (preparedGeneration.get() == generation) {
+                preparedShuffle = prepared;
+                plugin.getLogger().info("Prepared the next shuffle with seed " + seed);
+            }
+        });
+    }
+    
+    /**
+     * Drops the prepared shuffle because its inputs changed, such as a new seed or a config reload
+     * If a shuffle is still due, it is prepared again with the new inputs
+     */
+    public void invalidatePreparedShuffle() {
+        preparedGeneration.incrementAndGet();
+        preparedShuffle = null;
+        
+        if (nextShufflePending) {
+            SchedulerUtil.runTask(plugin, () -> {
+                // The shuffle may have run or the timer stopped in the meantime
+                if (nextShufflePending) {
+                    prepareNextShuffle();
+                }
+            });
         }
+    }
+    
+    /**
+     * Drops the prepared shuffle because no shuffle is due anymore, such as when the timer stops
+     */
+    public void discardPreparedShuffle() {
+        nextShufflePending = false;
+        preparedGeneration.incrementAndGet();
+        preparedShuffle = null;
+    }
+    
+    /**
+     * Takes the prepared shuffle if it was prepared from the given inputs
+     * The prepared shuffle is cleared either way, a shuffle is about to replace it
+     * Can be called asynchronously
+     * @param seed the seed of the shuffle
+     * @param shuffleMode the shuffle mode
+     * @return the prepared shuffle, or null if there is none or it is out of date
+     */
+    private PreparedShuffle takePreparedShuffle(long seed, String shuffleMode) {
+        // Only clear the buffered plan, whether a shuffle is due is up to the timer
+        PreparedShuffle prepared = preparedShuffle;
+        preparedGeneration.incrementAndGet();
+        preparedShuffle = null;
         
-        // Prepare recipe data asynchronously when possible
-        SchedulerUtil.runAsync(plugin, () -> prepareRecipeData(shuffleMode, random))
-            .thenRun(() -> SchedulerUtil.runTask(plugin, () -> applyRecipeChanges(announce)));
+        // The fingerprint also covers exclusions, weights and the recipe registry
+        if (prepared == null || originalRecipes.isEmpty()
+                || prepared.plan().getFingerprint() != computeFingerprint(seed, shuffleMode)) {
+            return null;
+        }
+        return prepared;
     }
     
     /**
-     * Prepares recipe data asynchronously
+     * Prepares a shuffle and stores its plan so a restart can apply it without recomputing
+     * Uses the shuffle prepared during the countdown if it is still current
+     * Can be called asynchronously
      * @param shuffleMode the shuffle mode
-     * @param random the random number generator
+     * @param seed the seed
+     * @param superseded returns true once a newer shuffle was requested
+     * @return the shuffle to apply, or null if a newer shuffle was requested
      */
-    private void prepareRecipeData(String shuffleMode, Random random) {
-        try {
-            // Store original recipes if not already stored (this needs to be done on the main thread)
-            if (originalRecipes.isEmpty()) {
-                SchedulerUtil.runTaskAsync(plugin, this::storeOriginalRecipes).join();
+    private PreparedShuffle prepareShuffle(String shuffleMode, long seed, BooleanSupplier superseded) {
+        // Store original recipes if not already stored (this needs to be done on the main thread)
+        if (originalRecipes.isEmpty()) {
+            SchedulerUtil.runTaskAsync(plugin, this::storeOriginalRecipes).join();
+        }
+        
+        // The countdown's shuffle comes with its namespaces and virtual result table already prepared
+        PreparedShuffle prepared = takePreparedShuffle(seed, shuffleMode);
+        if (prepared != null) {
+            plugin.getLogger().info("Using the shuffle prepared during the countdown");
+        } else {
+            if (superseded.getAsBoolean()) {
+                return null;
             }
             
-            // Clear existing shuffled recipes
-            shuffledRecipes.clear();
-            
             // Prepare shuffled recipes based on mode
-            if (shuffleMode.equalsIgnoreCase("random_item")) {
-                prepareRandomItemRecipes(random);
-            } else if (shuffleMode.equalsIgnoreCase("recipe_result")) {
-                prepareRecipeResultRecipes(random);
-            } else {
-                plugin.getLogger().warning("Unknown shuffle mode: " + shuffleMode + ". Using random_item mode.");
-                prepareRandomItemRecipes(random);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error preparing recipe data: " + e.getMessage());
-            e.printStackTrace();
+            Map<NamespacedKey, ResultDescriptor> results = prepareShuffledResults(shuffleMode, seed,
+                    originalRecipes.keySet());
+            prepared = withNamespaces(ShufflePlan.of(computeFingerprint(seed, shuffleMode), results),
+                    shuffleMode, seed);
+        }
+        
+        // A newer shuffle prepares after this one and stores its own plan, a superseded plan must not overwrite it
+        if (superseded.getAsBoolean()) {
+            return null;
+        }
+        planStore.save(prepared.plan());
+        return prepared;
+    }
+    
+    /**
+     * Prepares the shuffled results of every namespace and encodes them with the plan in a virtual result table
+     * The namespace results are only kept in the table
+     * Can be called asynchronously
+     * @param plan the prepared plan of the global shuffle, or null if there is nothing to apply
+     * @param shuffleMode the shuffle mode
+     * @param seed the global seed
+     * @return the plan with its virtual result table, or null if there is nothing to apply
+     */
+    private PreparedShuffle withNamespaces(ShufflePlan plan, String shuffleMode, long seed) {
+        if (plan == null) {
+            return null;
+        }
+        Map<String, Map<NamespacedKey, ResultDescriptor>> namespaces = prepareNamespaceResults(shuffleMode, seed,
+                originalRecipes.keySet());
+        return new PreparedShuffle(plan, prepareVirtualResults(plan.getResults(), namespaces));
+    }
+    
+    /**
+     * Builds the table the virtual apply mode remaps results from, so the main thread only has to publish it
+     * Can be called asynchronously
+     * @param results the shuffled results of the global shuffle, by recipe key
+     * @param namespaces the shuffled results of each namespace, by namespace name and recipe key
+     * @return the table, empty unless the apply mode is virtual
+     */
+    private VirtualResultTable prepareVirtualResults(Map<NamespacedKey, ResultDescriptor> results,
+                                                     Map<String, Map<NamespacedKey, ResultDescriptor>> namespaces) {
+        if (!isVirtualApplyMode()) {
+            return VirtualResultTable.EMPTY;
+        }
+        return VirtualResultTable.of(originalRecipes, results, namespaces);
+    }
+    
+    /**
+     * Prepares the shuffled results of every namespace, each with its own seed
+     * Namespaces only apply in virtual apply mode, since the server recipes can't differ per player
+     * Can be called asynchronously
+     * @param shuffleMode the shuffle mode
+     * @param seed the global seed
+     * @param keys the keys of the original recipes to shuffle
+     * @return the shuffled results by namespace name and recipe key
+     */
+    private Map<String, Map<NamespacedKey, ResultDescriptor>> prepareNamespaceResults(String shuffleMode, long seed,
+                                                                                      Collection<NamespacedKey> keys) {
+        List<ShuffleNamespace> namespaces = plugin.getConfigManager().getNamespaces();
+        if (namespaces.isEmpty() || !isVirtualApplyMode()) {
+            return Collections.emptyMap();
         }
+        
+        Map<String, Map<NamespacedKey, ResultDescriptor>> results = new HashMap<>();
+        for (ShuffleNamespace namespace : namespaces) {
+            results.put(namespace.name(), prepareShuffledResults(shuffleMode, namespace.shuffleSeed(seed), keys));
+        }
+        plugin.getLogger().info("Prepared " + results.size() + " shuffle namespace(s)");
+        return results;
+    }
+    
+    /**
+     * Applies a prepared plan on the main thread
+     * @param prepared the plan and namespace results
+     * @param announce whether to announce the completion
+     * @param onApplied called on the main thread once the shuffle is applied
+     */
+    private void applyPlan(PreparedShuffle prepared, boolean announce, Runnable onApplied) {
+        shuffledResults = Collections.unmodifiableMap(prepared.plan().getResults());
+        applyRecipeChanges(prepared.table(), announce, onApplied);
+    }
+    
+    /**
+     * Prepares shuffled results for a set of original recipes based on the mode
+     * Can be called asynchronously
+     * @param shuffleMode the shuffle mode
+     * @param seed the seed
+     * @param keys the keys of the original recipes to shuffle
+     * @return the shuffled result of each recipe
+     */
+    private Map<NamespacedKey, ResultDescriptor> prepareShuffledResults(String shuffleMode, long seed,
+                                                                        Collection<NamespacedKey> keys) {
+        PrepareShuffleEvent event = new PrepareShuffleEvent();
+        event.begin();
+        long start = System.nanoTime();
+        
+        Map<NamespacedKey, ResultDescriptor> prepared;
+        if (shuffleMode.equalsIgnoreCase("random_item")) {
+            prepared = prepareRandomItemRecipes(seed, keys);
+        } else if (shuffleMode.equalsIgnoreCase("weighted_item")) {
+            prepared = prepareWeightedItemRecipes(seed, keys);
+        } else if (shuffleMode.equalsIgnoreCase("recipe_result")) {
+            prepared = prepareRecipeResultRecipes(seed, keys);
+        } else {
+            plugin.getLogger().warning("Unknown shuffle mode: " + shuffleMode + ". Using random_item mode.");
+            prepared = prepareRandomItemRecipes(seed, keys);
+        }
+        
+        event.mode = shuffleMode;
+        event.seed = seed;
+        event.recipeCount = keys.size();
+        event.preparedCount = prepared.size();
+        event.commit();
+        plugin.getMetrics().observePhase(AmnesiaMetrics.Phase.PREPARE, System.nanoTime() - start);
+        return prepared;
+    }
+    
+    /**
+     * Computes the fingerprint of a shuffle's inputs
+     * Uses the registry fingerprint cached when the original recipes were stored, so it is cheap on the main thread
+     * @param seed the seed
+     * @param shuffleMode the shuffle mode
+     * @return the fingerprint
+     */
+    private long computeFingerprint(long seed, String shuffleMode) {
+        // Weights only affect the weighted mode, so changing them shouldn't invalidate other plans
+        RandomItemWeights weights = shuffleMode.equalsIgnoreCase("weighted_item")
+                ? plugin.getConfigManager().getRandomItemWeights() : null;
+        return ShufflePlan.fingerprint(seed, shuffleMode, plugin.getConfigManager().getExcludedRecipes(),
+                plugin.getConfigManager().getExcludedRandomItems(), weights, registryFingerprint);
     }
     
     /**
      * Applies recipe changes on the main thread
+     * The changes are spread across ticks, the shuffle only counts as complete once the last batch lands
+     * @param table the prepared virtual result table
      * @param announce whether to announce the completion
+     * @param onApplied called on the main thread once the shuffle is applied
      */
-    private void applyRecipeChanges(boolean announce) {
-        // Clear server recipes
-        clearServerRecipes();
+    private void applyRecipeChanges(VirtualResultTable table, boolean announce, Runnable onApplied) {
+        // Swap the server recipes over to the shuffled ones
+        applyResults(shuffledResults, table, () -> {
+            // Sync client recipes
+            syncClientRecipes();
+            
+            // Update shuffle state
+            plugin.getDataManager().setShuffled(true);
+            plugin.getDataManager().saveData();
+            plugin.getMetrics().recordShuffleApplied();
+            
+            // Announce shuffle finished if needed
+            if (announce) {
+                MessageUtil.broadcast(plugin.getConfigManager().getCompiledMessages().getShuffleFinished());
+            }
+            
+            plugin.getLogger().info("Recipes shuffled successfully with seed: " + plugin.getDataManager().getSeed() + 
+                    " (" + (plugin.getDataManager().isUserSetSeed() ? "user-set" : "random") + ")");
+            onApplied.run();
+        });
+    }
+    
+    /**
+     * Records the applied shuffle in the history
+     * The plan is encoded and written asynchronously
+     * @param plan the applied plan, whose fingerprint is stored with the entry
+     * @param shuffleMode the shuffle mode
+     * @param seed the seed
+     */
+    private void recordHistory(ShufflePlan plan, String shuffleMode, long seed) {
+        if (plugin.getConfigManager().getHistorySize() <= 0) {
+            return;
+        }
         
-        // Register shuffled recipes
-        registerShuffledRecipes();
+        Map<NamespacedKey, RecipeDescriptor> recipes = originalRecipes;
+        VirtualResultTable table = virtualResults;
+        boolean userSetSeed = plugin.getDataManager().isUserSetSeed();
+        List<String> excludedRecipes = plugin.getConfigManager().getExcludedRecipes();
+        List<String> excludedRandomItems = plugin.getConfigManager().getExcludedRandomItems();
+        long fingerprint = plan.getFingerprint();
+        long timestamp = System.currentTimeMillis();
         
-        // Sync client recipes
-        syncClientRecipes();
+        SchedulerUtil.runAsync(plugin, () -> {
+            try {
+                long exclusionFingerprint = ShufflePlan.exclusionFingerprint(excludedRecipes, excludedRandomItems);
+                byte[] encodedPlan = ShufflePlanCodec.encode(plan);
+                
+                // Namespaces are kept so a rollback restores them as they were, not from the current config
+                Map<String, byte[]> encodedNamespaces = new HashMap<>();
+                for (String namespace : table.getNamespaceNames()) {
+                    encodedNamespaces.put(namespace, ShufflePlanCodec.encode(ShufflePlan.of(fingerprint,
+                            table.getResults(namespace, recipes))));
+                }
+                history.append(new ShuffleHistoryEntry(timestamp, seed, userSetSeed, shuffleMode,
+                        exclusionFingerprint, plan.size(), encodedPlan, encodedNamespaces));
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not record shuffle history: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Rolls back to a shuffle from the history
+     * The stored plan is decoded asynchronously and applied as it is, without preparing it again
+     * @param index the position in the history, 1 being the newest entry
+     * @return the entry being rolled back to, or null if there is no entry at that position
+     */
+    public ShuffleHistoryEntry rollback(int index) {
+        ShuffleHistoryEntry entry = history.getEntry(index);
+        if (entry == null) {
+            return null;
+        }
         
-        // Update shuffle state
-        plugin.getDataManager().setShuffled(true);
-        plugin.getDataManager().saveData();
+        coordinator.submit(superseded -> {
+            try {
+                return prepareRollback(entry);
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read shuffle history entry: " + e.getMessage());
+                return null;
+            }
+        }, prepared -> applyRollback(entry, prepared));
+        return entry;
+    }
+    
+    /**
+     * Decodes the plans of a history entry, keeping only the recipes that still exist
+     * The namespaces are the ones stored with the entry, not the ones in the current config
+     * Can be called asynchronously
+     * @param entry the history entry
+     * @return the shuffle to apply
+     * @throws IOException if a plan could not be decoded
+     */
+    private PreparedShuffle prepareRollback(ShuffleHistoryEntry entry) throws IOException {
+        if (originalRecipes.isEmpty()) {
+            SchedulerUtil.runTaskAsync(plugin, this::storeOriginalRecipes).join();
+        }
         
-        // Announce shuffle finished if needed
-        if (announce) {
-            MessageUtil.broadcastMessage(plugin.getConfigManager().getNotificationMessages().shuffleFinished);
+        // Use the stored results as they are
+        ShufflePlan plan = ShufflePlan.of(computeFingerprint(entry.seed(), entry.mode()),
+                retainOriginalRecipes(entry.decodePlan(interner)));
+        Map<String, Map<NamespacedKey, ResultDescriptor>> namespaces = new HashMap<>();
+        if (isVirtualApplyMode()) {
+            for (Map.Entry<String, ShufflePlan> namespace : entry.decodeNamespaces(interner).entrySet()) {
+                namespaces.put(namespace.getKey(), retainOriginalRecipes(namespace.getValue()));
+            }
+        }
+        return new PreparedShuffle(plan, prepareVirtualResults(plan.getResults(), namespaces));
+    }
+    
+    /**
+     * Gets the results of a stored plan for the recipes that still exist
+     * Can be called asynchronously
+     * @param plan the stored plan
+     * @return the results of the current original recipes, by recipe key
+     */
+    private Map<NamespacedKey, ResultDescriptor> retainOriginalRecipes(ShufflePlan plan) {
+        Map<NamespacedKey, RecipeDescriptor> recipes = originalRecipes;
+        Map<NamespacedKey, ResultDescriptor> restored = new HashMap<>();
+        for (Map.Entry<NamespacedKey, ResultDescriptor> result : plan.getResults().entrySet()) {
+            if (recipes.containsKey(result.getKey())) {
+                restored.put(result.getKey(), result.getValue());
+            }
+        }
+        return restored;
+    }
+    
+    /**
+     * Applies a plan from the history on the main thread
+     * @param entry the history entry
+     * @param prepared the decoded plan of the entry and its namespace results
+     */
+    private void applyRollback(ShuffleHistoryEntry entry, PreparedShuffle prepared) {
+        ShufflePlan plan = prepared.plan();
+        long exclusionFingerprint = ShufflePlan.exclusionFingerprint(plugin.getConfigManager().getExcludedRecipes(),
+                plugin.getConfigManager().getExcludedRandomItems());
+        if (entry.exclusionFingerprint() != exclusionFingerprint) {
+            plugin.getLogger().warning("Exclusions changed since this shuffle, "
+                    + "only recipes that are still shuffled are rolled back");
         }
         
-        plugin.getLogger().info("Recipes shuffled successfully with seed: " + plugin.getDataManager().getSeed() + 
-                " (" + (plugin.getDataManager().isUserSetSeed() ? "user-set" : "random") + ")");
+        shuffledResults = Collections.unmodifiableMap(plan.getResults());
+        
+        // Make the rolled back shuffle the current one, so it survives a restart
+        // The mode is kept in data.yml rather than the config, the configured mode applies again on the next shuffle
+        plugin.getDataManager().setSeed(entry.seed(), entry.userSetSeed());
+        plugin.getDataManager().setRollbackMode(entry.mode());
+        invalidatePreparedShuffle();
+        SchedulerUtil.runAsync(plugin, () -> planStore.save(plan));
+        
+        plugin.getLogger().info("Rolling back to the shuffle with seed " + entry.seed() + " (" + plan.size() + " recipes)");
+        applyRecipeChanges(prepared.table(), false, () -> {});
+    }
+    
+    /**
+     * Counts the original recipes by type
+     * Can be called from any thread
+     * @return the number of original recipes of each type
+     */
+    public Map<RecipeType, Integer> getRecipeCountsByType() {
+        Map<RecipeType, Integer> counts = new EnumMap<>(RecipeType.class);
+        for (RecipeDescriptor descriptor : originalRecipes.values()) {
+            counts.merge(descriptor.type(), 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    /**
+     * Gets the shuffle history
+     * @return the shuffle history
+     */
+    public ShuffleHistory getHistory() {
+        return history;
+    }
+    
+    /**
+     * Checks if a shuffle or restore is still being prepared, applied or synced to clients
+     * Must be called on the main thread
+     * @return true if there is shuffle work left, false otherwise
+     */
+    public boolean isBusy() {
+        return coordinator.isBusy() || (activePipeline != null && !activePipeline.isDone()) || clientSync.isBusy();
     }
     
     /**
      * Synchronizes client recipes based on the configured mode
+     * Players are synced a few at a time across ticks, a newer sync supersedes players still waiting on this one
      */
     private void syncClientRecipes() {
+        ClientSyncEvent event = new ClientSyncEvent();
+        event.begin();
+        long start = System.nanoTime();
+        
         String syncMode = plugin.getConfigManager().getClientSyncMode();
         
+        // Clients already know the original recipes the server keeps in virtual mode
+        if (isVirtualApplyMode()) {
+            syncMode = "vanilla";
+        }
+        
+        // Only delta and lazy modes keep track of what clients were told
+        if (!syncMode.equalsIgnoreCase("delta")) {
+            deltaSync.reset();
+        }
+        if (!syncMode.equalsIgnoreCase("lazy")) {
+            lazySync.reset();
+        }
+        
         switch (syncMode.toLowerCase()) {
-            case "resync":
+            case "resync": {
                 // Resync all clients with the new recipes
-                for (Player player : Bukkit.getOnlinePlayers()) {
+                Set<NamespacedKey> keys = shuffledResults.keySet();
+                clientSync.schedule(Bukkit.getOnlinePlayers(), player -> {
                     player.updateCommands();
-                    player.discoverRecipes(shuffledRecipes.keySet());
-                }
-                plugin.getLogger().info("Resynced all clients with new recipes");
+                    player.discoverRecipes(keys);
+                });
+                plugin.getLogger().info("Resyncing all clients with new recipes");
                 break;
+            }
                 
-            case "clear":
+            case "clear": {
                 // Clear all recipes from clients
-                for (Player player : Bukkit.getOnlinePlayers()) {
+                Set<NamespacedKey> keys = originalRecipes.keySet();
+                clientSync.schedule(Bukkit.getOnlinePlayers(), player -> {
                     player.updateCommands();
-                    player.undiscoverRecipes(originalRecipes.keySet());
-                }
-                plugin.getLogger().info("Cleared all recipes from clients");
+                    player.undiscoverRecipes(keys);
+                });
+                plugin.getLogger().info("Clearing all recipes from clients");
+                break;
+            }
+                
+            case "delta":
+                // Only send each client the recipes that were added or removed since it was last synced
+                clientSync.schedule(Bukkit.getOnlinePlayers(), deltaSync.prepare(shuffledResults.keySet()));
+                plugin.getLogger().info("Syncing recipe changes to all clients");
+                break;
+                
+            case "lazy":
+                // Sync each client the first time it opens a crafting interface or its recipe book
+                clientSync.cancel();
+                lazySync.update(shuffledResults.keySet(), Bukkit.getOnlinePlayers());
+                plugin.getLogger().info("Marked all clients for recipe sync on their next crafting interface open");
                 break;
                 
             case "vanilla":
                 // Let Minecraft handle it
+                clientSync.cancel();
                 plugin.getLogger().info("Using vanilla recipe handling for clients");
                 break;
                 
             default:
+                clientSync.cancel();
                 plugin.getLogger().warning("Unknown client sync mode: " + syncMode + ". Using vanilla mode.");
                 plugin.getLogger().info("Using vanilla recipe handling for clients");
                 break;
         }
+        
+        event.mode = syncMode;
+        event.playerCount = Bukkit.getOnlinePlayers().size();
+        event.recipeCount = shuffledResults.size();
+        event.commit();
+        plugin.getMetrics().observePhase(AmnesiaMetrics.Phase.SYNC, System.nanoTime() - start);
+    }
+    
+    /**
+     * Handles a player joining the server
+     * @param player the player
+     */
+    public void handlePlayerJoin(Player player) {
+        namespaceAssignments.assign(player);
+        
+        if (plugin.getConfigManager().getClientSyncMode().equalsIgnoreCase("lazy")
+                && plugin.getDataManager().isShuffled()) {
+            lazySync.markDirty(player);
+        }
+    }
+    
+    /**
+     * Handles a player leaving the server
+     * @param player the player
+     */
+    public void handlePlayerQuit(Player player) {
+        deltaSync.forget(player);
+        lazySync.forget(player);
+        namespaceAssignments.forget(player);
+    }
+    
+    /**
+     * Handles a player opening a crafting-type inventory or their recipe book
+     * In lazy sync mode this is when the player's client recipes are brought up to date
+     * @param player the player
+     */
+    public void handleRecipeBookNeeded(Player player) {
+        if (plugin.getConfigManager().getClientSyncMode().equalsIgnoreCase("lazy")) {
+            lazySync.syncIfDirty(player);
+        }
     }
     
     /**
@@ -177,7 +732,13 @@ public class RecipeManager {
      * Must be called on the main thread
      */
     private void storeOriginalRecipes() {
-        originalRecipes.clear();
+        StoreRecipesEvent event = new StoreRecipesEvent();
+        event.begin();
+        long start = System.nanoTime();
+        
+        Map<NamespacedKey, RecipeDescriptor> recipes = new HashMap<>();
+        registeredResults.clear();
+        interner.clear();
         
         Iterator<Recipe> recipeIterator = Bukkit.recipeIterator();
         List<String> excludedRecipes = plugin.getConfigManager().getExcludedRecipes();
@@ -194,124 +755,390 @@ public class RecipeManager {
             
             // Skip excluded recipes
             if (excludedRecipes.contains(key.toString())) {
+                event.excludedCount++;
                 continue;
             }
             
-            // Store the recipe
-            originalRecipes.put(key, recipe);
+            // Store a descriptor of the recipe
+            RecipeDescriptor descriptor = RecipeDescriptor.capture(key, recipe, interner);
+            if (descriptor != null) {
+                recipes.put(key, descriptor);
+                registeredResults.put(key, descriptor.result());
+            }
         }
         
-        plugin.getLogger().info("Stored " + originalRecipes.size() + " original recipes");
+        // Hash the registry once here, so fingerprinting a shuffle on the main thread stays cheap
+        registryFingerprint = ShufflePlan.registryFingerprint(recipes);
+        originalRecipes = Collections.unmodifiableMap(recipes);
+        plugin.getLogger().info("Stored " + recipes.size() + " original recipes");
+        
+        event.recipeCount = recipes.size();
+        event.commit();
+        plugin.getMetrics().observePhase(AmnesiaMetrics.Phase.STORE, System.nanoTime() - start);
     }
     
     /**
-     * Clears all recipes from the server
+     * Brings the stored and shuffled recipes up to date after the server reloaded its recipes
+     * Only recipes that the reload added or changed are shuffled, every other recipe keeps its assignment
+     * The registry is read on the main thread, the new assignments are prepared asynchronously
      * Must be called on the main thread
      */
-    private void clearServerRecipes() {
-        for (NamespacedKey key : originalRecipes.keySet()) {
-            Bukkit.removeRecipe(key);
+    public void handleRecipeReload() {
+        // Nothing to update if the original recipes were never stored
+        if (originalRecipes.isEmpty()) {
+            return;
+        }
+        
+        Map<NamespacedKey, RecipeDescriptor> recipes = new HashMap<>(originalRecipes);
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>(shuffledResults);
+        Iterator<Recipe> recipeIterator = Bukkit.recipeIterator();
+        List<String> excludedRecipes = plugin.getConfigManager().getExcludedRecipes();
+        Set<NamespacedKey> reloadedKeys = new HashSet<>();
+        Set<NamespacedKey> changedKeys = new HashSet<>();
+        int restored = 0;
+        
+        while (recipeIterator.hasNext()) {
+            Recipe recipe = recipeIterator.next();
+            
+            // Skip recipes that don't have a key
+            if (!RecipeKeyUtil.hasNamespacedKey(recipe)) {
+                continue;
+            }
+            
+            NamespacedKey key = RecipeKeyUtil.getNamespacedKey(recipe);
+            
+            // Skip excluded recipes
+            if (excludedRecipes.contains(key.toString())) {
+                continue;
+            }
+            
+            reloadedKeys.add(key);
+            
+            // Still the recipe we registered, nothing to do
+            ResultDescriptor result = interner.result(recipe.getResult());
+            if (result.equals(registeredResults.get(key))) {
+                continue;
+            }
+            
+            // The reload registered a fresh recipe from the datapacks in place of ours
+            RecipeDescriptor descriptor = RecipeDescriptor.capture(key, recipe, interner);
+            if (descriptor == null) {
+                continue;
+            }
+            RecipeDescriptor original = recipes.put(key, descriptor);
+            registeredResults.put(key, result);
+            
+            if (original != null && original.result().equals(result)) {
+                // Same recipe as before, it keeps its shuffled result and picks up any new ingredients
+                if (results.containsKey(key)) {
+                    restored++;
+                }
+            } else {
+                changedKeys.add(key);
+            }
+        }
+        
+        // Forget recipes the reload removed
+        int removed = 0;
+        Iterator<NamespacedKey> keyIterator = recipes.keySet().iterator();
+        while (keyIterator.hasNext()) {
+            NamespacedKey key = keyIterator.next();
+            if (!reloadedKeys.contains(key)) {
+                keyIterator.remove();
+                registeredResults.remove(key);
+                removed++;
+            }
+        }
+        
+        // Drop the assignments of removed and changed recipes, the reload shuffle fills in the changed ones
+        results.keySet().retainAll(recipes.keySet());
+        results.keySet().removeAll(changedKeys);
+        
+        registryFingerprint = ShufflePlan.registryFingerprint(recipes);
+        originalRecipes = Collections.unmodifiableMap(recipes);
+        shuffledResults = Collections.unmodifiableMap(results);
+        plugin.getLogger().info("Recipes reloaded: " + changedKeys.size() + " added or changed, " + removed + 
+                " removed, " + restored + " shuffled recipes to restore");
+        
+        // A shuffle still being prepared used the old recipes, prepare it again with the new ones
+        if (coordinator.isBusy()) {
+            coordinator.resubmit();
+            return;
+        }
+        
+        if (!plugin.getDataManager().isShuffled()) {
+            return;
         }
+        
+        long seed = plugin.getDataManager().getSeed();
+        String shuffleMode = getCurrentShuffleMode();
+        coordinator.submit(superseded -> prepareReload(shuffleMode, seed, superseded), prepared -> {
+            shuffledResults = Collections.unmodifiableMap(prepared.plan().getResults());
+            applyResults(shuffledResults, prepared.table(), () -> {
+                syncClientRecipes();
+                plugin.getLogger().info("Shuffle updated after recipe reload");
+            });
+        });
     }
     
     /**
-     * Prepares random item recipes
+     * Prepares the shuffle after a recipe reload, assigning results to the recipes that have none
+     * Reads the recipes and assignments when it runs, so a request prepared again after another reload is current
      * Can be called asynchronously
-     * @param random the random number generator
+     * @param shuffleMode the shuffle mode
+     * @param seed the seed
+     * @param superseded returns true once a newer shuffle was requested
+     * @return the updated shuffle, or null if a newer shuffle was requested
      */
-    private void prepareRandomItemRecipes(Random random) {
-        // Get all available materials
-        List<Material> availableMaterials = MaterialCache.getAvailableRandomItemMaterials(plugin);
+    private PreparedShuffle prepareReload(String shuffleMode, long seed, BooleanSupplier superseded) {
+        Map<NamespacedKey, ResultDescriptor> assigned = shuffledResults;
+        Map<NamespacedKey, ResultDescriptor> results = completeResults(shuffleMode, seed, assigned);
         
-        // Prepare shuffled recipes
-        for (Map.Entry<NamespacedKey, Recipe> entry : originalRecipes.entrySet()) {
-            NamespacedKey key = entry.getKey();
-            Recipe recipe = entry.getValue();
-            
-            // Get a random material
-            Material randomMaterial = availableMaterials.get(random.nextInt(availableMaterials.size()));
-            ItemStack randomItem = new ItemStack(randomMaterial);
-            
-            // Create a new recipe with the random item as the result
-            Recipe shuffledRecipe = RecipeBuilderFactory.createRecipe(key, recipe, randomItem);
-            
-            // Store the shuffled recipe
-            if (shuffledRecipe != null) {
-                shuffledRecipes.put(key, shuffledRecipe);
+        // Namespaces get the same treatment, each from its own seed and the assignments in the current table
+        Map<String, Map<NamespacedKey, ResultDescriptor>> namespaces = new HashMap<>();
+        if (isVirtualApplyMode()) {
+            VirtualResultTable table = virtualResults;
+            Map<NamespacedKey, RecipeDescriptor> recipes = originalRecipes;
+            for (ShuffleNamespace namespace : plugin.getConfigManager().getNamespaces()) {
+                if (superseded.getAsBoolean()) {
+                    return null;
+                }
+                Map<NamespacedKey, ResultDescriptor> current = table.getResults(namespace.name(), recipes);
+                if (current == null) {
+                    current = new HashMap<>();
+                }
+                
+                // Only the recipes the global shuffle kept are still assigned, the rest were removed or changed
+                current.keySet().retainAll(assigned.keySet());
+                namespaces.put(namespace.name(), completeResults(shuffleMode, namespace.shuffleSeed(seed), current));
             }
         }
         
-        plugin.getLogger().info("Prepared " + shuffledRecipes.size() + " recipes with random items");
+        // The original recipes changed, so store the plan under its new fingerprint, unless a newer shuffle will
+        ShufflePlan plan = ShufflePlan.of(computeFingerprint(seed, shuffleMode), results);
+        if (superseded.getAsBoolean()) {
+            return null;
+        }
+        planStore.save(plan);
+        return new PreparedShuffle(plan, prepareVirtualResults(results, namespaces));
     }
     
     /**
-     * Prepares recipe result recipes
+     * Assigns results to the original recipes that have none, keeping every other assignment
+     * In recipe_result mode the whole permutation is prepared again, since recipes swap results with each other
+     * and a changed recipe shuffled on its own could only draw its own result
      * Can be called asynchronously
-     * @param random the random number generator
-     */
-    private void prepareRecipeResultRecipes(Random random) {
-        // Get all recipe results
-        List<ItemStack> recipeResults = originalRecipes.values().stream()
-                .map(Recipe::getResult)
-                .collect(Collectors.toList());
-        
-        // Shuffle the results
-        Collections.shuffle(recipeResults, random);
-        
-        // Create new recipes with shuffled results
-        int i = 0;
-        for (Map.Entry<NamespacedKey, Recipe> entry : originalRecipes.entrySet()) {
-            NamespacedKey key = entry.getKey();
-            Recipe recipe = entry.getValue();
-            
-            // Get the shuffled result
-            ItemStack shuffledResult = recipeResults.get(i);
-            
-            // Create a new recipe with the shuffled result
-            Recipe shuffledRecipe = RecipeBuilderFactory.createRecipe(key, recipe, shuffledResult);
-            
-            // Store the shuffled recipe
-            if (shuffledRecipe != null) {
-                shuffledRecipes.put(key, shuffledRecipe);
+     * @param shuffleMode the shuffle mode
+     * @param seed the seed
+     * @param assigned the current results by recipe key
+     * @return the results of every original recipe
+     */
+    private Map<NamespacedKey, ResultDescriptor> completeResults(String shuffleMode, long seed,
+                                                                 Map<NamespacedKey, ResultDescriptor> assigned) {
+        Map<NamespacedKey, RecipeDescriptor> recipes = originalRecipes;
+        if (shuffleMode.equalsIgnoreCase("recipe_result")) {
+            return prepareShuffledResults(shuffleMode, seed, recipes.keySet());
+        }
+        
+        // The other modes draw each recipe from its own random stream, the same as a full shuffle would
+        List<NamespacedKey> missing = new ArrayList<>();
+        for (NamespacedKey key : recipes.keySet()) {
+            if (!assigned.containsKey(key)) {
+                missing.add(key);
             }
-            
-            i++;
         }
         
-        plugin.getLogger().info("Prepared " + shuffledRecipes.size() + " recipes by swapping results");
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>(assigned);
+        results.keySet().retainAll(recipes.keySet());
+        if (!missing.isEmpty()) {
+            results.putAll(prepareShuffledResults(shuffleMode, seed, missing));
+        }
+        return results;
+    }
+    
+    /**
+     * Applies target results according to the configured apply mode
+     * In virtual mode the table prepared off the main thread is published in one step, and the server recipes
+     * are only touched to bring back any original recipe an earlier mode replaced
+     * Must be called on the main thread
+     * @param target the results recipes should have afterwards, by recipe key
+     * @param table the prepared virtual result table, empty unless the apply mode is virtual
+     * @param onComplete the callback to run once the results are in effect
+     */
+    private void applyResults(Map<NamespacedKey, ResultDescriptor> target, VirtualResultTable table,
+                              Runnable onComplete) {
+        virtualResults = table;
+        if (!table.isEmpty()) {
+            plugin.getLogger().info("Remapping " + table.size() + " recipe results virtually across "
+                    + table.getNamespaceCount() + " namespace(s)");
+        }
+        
+        applyChangeSet(createChangeSet(target), onComplete);
+    }
+    
+    /**
+     * Checks if recipe results are remapped in crafting events instead of re-registered
+     * @return true if the apply mode is virtual, false otherwise
+     */
+    private boolean isVirtualApplyMode() {
+        return plugin.getConfigManager().getApplyMode().equalsIgnoreCase("virtual");
+    }
+    
+    /**
+     * Gets the shuffle namespace each online player belongs to
+     * @return the namespace assignments
+     */
+    public NamespaceAssignments getNamespaceAssignments() {
+        return namespaceAssignments;
+    }
+    
+    /**
+     * Gets the results remapped in crafting events by the virtual apply mode
+     * Can be called from any thread
+     * @return the current table, empty unless the apply mode is virtual
+     */
+    public VirtualResultTable getVirtualResults() {
+        return virtualResults;
+    }
+    
+    /**
+     * Creates the change set that turns the registered recipes into the target recipes
+     * @param target the results that should be registered afterwards, by recipe key
+     * @return the change set for the configured apply mode
+     */
+    private RecipeChangeSet createChangeSet(Map<NamespacedKey, ResultDescriptor> target) {
+        String applyMode = plugin.getConfigManager().getApplyMode();
+        
+        switch (applyMode.toLowerCase()) {
+            case "diff":
+                return RecipeChangeSet.diff(originalRecipes, registeredResults, target);
+                
+            case "full":
+                return RecipeChangeSet.full(originalRecipes, target);
+                
+            case "virtual":
+                // The server keeps its original recipes, usually there is nothing to change
+                return RecipeChangeSet.diff(originalRecipes, registeredResults, getOriginalResults());
+                
+            default:
+                plugin.getLogger().warning("Unknown apply mode: " + applyMode + ". Using full mode.");
+                return RecipeChangeSet.full(originalRecipes, target);
+        }
     }
     
     /**
-     * Registers the shuffled recipes on the server
+     * Applies a change set to the server recipes
+     * Any change set still being applied is cancelled first, the new one is computed against what already landed
      * Must be called on the main thread
+     * @param changes the change set to apply
+     * @param onComplete the callback to run once every change has been applied
      */
-    private void registerShuffledRecipes() {
-        for (Recipe recipe : shuffledRecipes.values()) {
-            Bukkit.addRecipe(recipe);
+    private void applyChangeSet(RecipeChangeSet changes, Runnable onComplete) {
+        if (activePipeline != null && !activePipeline.isDone()) {
+            activePipeline.cancel();
+            plugin.getLogger().info("Cancelled the previous recipe apply, a newer one replaces it");
         }
+        
+        activePipeline = new RecipeApplyPipeline(plugin, changes, registeredResults, onComplete);
+        activePipeline.start();
+    }
+    
+    /**
+     * Prepares random item recipes
+     * Can be called asynchronously, recipes are prepared in parallel
+     * Each recipe draws from its own random stream, so the result only depends on the seed
+     * @param seed the seed
+     * @param keys the keys of the original recipes to shuffle
+     * @return the shuffled result of each recipe
+     */
+    private Map<NamespacedKey, ResultDescriptor> prepareRandomItemRecipes(long seed, Collection<NamespacedKey> keys) {
+        // Get all available materials
+        MaterialCache.RandomItemPool pool = MaterialCache.getRandomItemPool(plugin);
+        if (pool.isEmpty()) {
+            plugin.getLogger().warning("Every item is excluded from random items, no recipes were shuffled");
+            return new HashMap<>();
+        }
+        
+        Map<NamespacedKey, ResultDescriptor> prepared = ShuffleAlgorithms.randomItems(seed, keys, pool, interner);
+        plugin.getLogger().info("Prepared " + prepared.size() + " recipes with random items");
+        return prepared;
+    }
+    
+    /**
+     * Prepares weighted random item recipes
+     * Can be called asynchronously, recipes are prepared in parallel
+     * Items are drawn from an alias table, so each pick takes constant time regardless of the number of weights
+     * @param seed the seed
+     * @param keys the keys of the original recipes to shuffle
+     * @return the shuffled result of each recipe
+     */
+    private Map<NamespacedKey, ResultDescriptor> prepareWeightedItemRecipes(long seed, Collection<NamespacedKey> keys) {
+        AliasTable table = MaterialCache.getWeightedItemTable(plugin);
+        if (table.isEmpty()) {
+            plugin.getLogger().warning("Every item is excluded or has no weight, no recipes were shuffled");
+            return new HashMap<>();
+        }
+        
+        Map<NamespacedKey, ResultDescriptor> prepared = ShuffleAlgorithms.weightedItems(seed, keys, table, interner);
+        plugin.getLogger().info("Prepared " + prepared.size() + " recipes with weighted random items");
+        return prepared;
+    }
+    
+    /**
+     * Prepares recipe result recipes
+     * Can be called asynchronously, recipes are prepared in parallel
+     * @param seed the seed
+     * @param recipeKeys the keys of the original recipes to shuffle amongst each other
+     * @return the shuffled result of each recipe
+     */
+    private Map<NamespacedKey, ResultDescriptor> prepareRecipeResultRecipes(long seed,
+                                                                            Collection<NamespacedKey> recipeKeys) {
+        Map<NamespacedKey, ResultDescriptor> prepared = ShuffleAlgorithms.recipeResults(seed, recipeKeys,
+                originalRecipes);
+        plugin.getLogger().info("Prepared " + prepared.size() + " recipes by swapping results");
+        return prepared;
+    }
+    
+    /**
+     * Gets the original result of every stored recipe
+     * @return the original results by recipe key
+     */
+    private Map<NamespacedKey, ResultDescriptor> getOriginalResults() {
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>();
+        for (RecipeDescriptor descriptor : originalRecipes.values()) {
+            results.put(descriptor.key(), descriptor.result());
+        }
+        return results;
     }
     
     /**
      * Restores the original recipes
      */
     public void restoreOriginalRecipes() {
-        SchedulerUtil.runTask(plugin, () -> {
-            // Clear server recipes
-            clearServerRecipes();
-            
-            // Register original recipes
-            for (Recipe recipe : originalRecipes.values()) {
-                Bukkit.addRecipe(recipe);
-            }
-            
-            // Sync client recipes
-            syncClientRecipes();
+        // Supersedes any shuffle in flight, so it can't land after the originals
+        coordinator.submit(superseded -> getOriginalResults(), originalResults -> {
+            plugin.getDataManager().setRollbackMode(null);
             
-            // Update shuffle state
-            plugin.getDataManager().setShuffled(false);
-            plugin.getDataManager().saveData();
-            
-            plugin.getLogger().info("Original recipes restored.");
+            // Swap the server recipes back to the original ones
+            applyResults(originalResults, VirtualResultTable.EMPTY, () -> {
+                // Sync client recipes
+                syncClientRecipes();
+                
+                // Update shuffle state
+                plugin.getDataManager().setShuffled(false);
+                plugin.getDataManager().saveData();
+                
+                plugin.getLogger().info("Original recipes restored.");
+            });
         });
     }
-} 
\ No newline at end of file
+    
+    /**
+     * A shuffle prepared for the coordinator to apply
+     * The namespaces are only kept in the table, which is their only copy once applied
+     * @param plan the plan of the global shuffle
+     * @param table the virtual result table with the namespaces, empty unless the apply mode is virtual
+     */
+    private record PreparedShuffle(ShufflePlan plan, VirtualResultTable table) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Team;
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.config.ShuffleNamespace;
+import top.modpotato.Amnesia.util.SchedulerUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of which shuffle namespace each online player belongs to
+ * Players are assigned on join and re-checked on reload, so crafting events only need a map lookup
+ * Team and group changes have no event, so they apply from the player's next join or the next reload
+ * Teams are only checked on Paper, Folia has no main scoreboard
+ */
+public class NamespaceAssignments {
+    private final Main plugin;
+    private final Map<UUID, String> assignments = new ConcurrentHashMap<>();
+    
+    /**
+     * Creates new NamespaceAssignments
+     * @param plugin the plugin instance
+     */
+    public NamespaceAssignments(Main plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Re-checks every online player, such as after the namespaces were reloaded
+     * Each player is checked on the thread that owns them
+     */
+    public void refresh() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            SchedulerUtil.runForEntity(plugin, player, () -> assign(player));
+        }
+    }
+    
+    /**
+     * Assigns a player to the first namespace they match, or to the global shuffle if they match none
+     * A player matches a namespace through its permission, one of its teams or one of its permission groups
+     * @param player the player
+     */
+    public void assign(Player player) {
+        List<ShuffleNamespace> namespaces = plugin.getConfigManager().getNamespaces();
+        if (namespaces.isEmpty()) {
+            assignments.remove(player.getUniqueId());
+            return;
+        }
+        
+        // Folia has no main scoreboard, so namespaces can only match by permission there
+        Team team = Main.isFolia() ? null
+                : Bukkit.getScoreboardManager().getMainScoreboard().getEntryTeam(player.getName());
+        for (ShuffleNamespace namespace : namespaces) {
+            if (matches(player, team, namespace)) {
+                assignments.put(player.getUniqueId(), namespace.name());
+                return;
+            }
+        }
+        assignments.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Gets the namespace a player is assigned to
+     * Allocation-free, safe to call from any thread
+     * @param player the player
+     * @return the namespace name, or null for the global shuffle
+     */
+    public String get(Player player) {
+        return assignments.get(player.getUniqueId());
+    }
+    
+    /**
+     * Forgets a player, such as when they quit
+     * @param player the player
+     */
+    public void forget(Player player) {
+        assignments.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Checks if a player belongs to a namespace
+     * @param player the player
+     * @param team the player's team on the main scoreboard, or null if they have none or on Folia
+     * @param namespace the namespace
+     * @return true if the player belongs to the namespace, false otherwise
+     */
+    private static boolean matches(Player player, Team team, ShuffleNamespace namespace) {
+        if (hasExplicitPermission(player, namespace.permission())) {
+            return true;
+        }
+        if (team != null && namespace.teams().contains(team.getName())) {
+            return true;
+        }
+        for (String group : namespace.groups()) {
+            if (hasExplicitPermission(player, "group." + group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks if a player was granted a permission explicitly
+     * Undeclared permissions default to operators, which would put every operator in the first namespace
+     * @param player the player
+     * @param permission the permission node
+     * @return true if the permission is set and granted, false otherwise
+     */
+    private static boolean hasExplicitPermission(Player player, String permission) {
+        return player.isPermissionSet(permission) && player.hasPermission(permission);
+    }
+}
@@ -0,0 +1,244 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Recipe;
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.metrics.AmnesiaMetrics;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+import top.modpotato.Amnesia.recipe.util.RecipeRegistryUtil;
+import top.modpotato.Amnesia.trace.ApplyBatchEvent;
+import top.modpotato.Amnesia.util.SchedulerUtil;
+
+import java.util.Map;
+
+/**
+ * Applies a change set to the server recipes in batches spread across ticks
+ * Each tick only spends as much time as the configured budget and the server's current tick time allow
+ * In bulk mode clients receive a single recipe update once the last batch lands
+ */
+public class RecipeApplyPipeline {
+    private static final double TICK_MILLIS = 50.0;
+    private static final double MIN_BUDGET_MILLIS = 1.0;
+    
+    private final Main plugin;
+    private final RecipeChangeSet changes;
+    private final Map<NamespacedKey, ResultDescriptor> registeredResults;
+    private final Runnable onComplete;
+    private final int budgetMillis;
+    private final boolean bulk;
+    
+    private int changeIndex = 0;
+    private int ticks = 0;
+    private long lastTickNanos = 0;
+    private boolean tickTimeSupported = true;
+    private boolean cancelled = false;
+    private Object task; // Can be BukkitTask or Folia's ScheduledTask
+    private ApplyBatchEvent batchEvent;
+    private long batchStartNanos;
+    private long workNanos = 0;
+    
+    /**
+     * Creates a new RecipeApplyPipeline
+     * @param plugin the plugin instance
+     * @param changes the change set to apply
+     * @param registeredResults the tracked results of the registered recipes, updated as changes land
+     * @param onComplete the callback to run on the main thread once the last batch has been applied
+     */
+    public RecipeApplyPipeline(Main plugin, RecipeChangeSet changes, Map<NamespacedKey, ResultDescriptor> registeredResults,
+                               Runnable onComplete) {
+        this.plugin = plugin;
+        this.changes = changes;
+        this.registeredResults = registeredResults;
+        this.onComplete = onComplete;
+        this.budgetMillis = plugin.getConfigManager().getApplyTickBudget();
+        this.bulk = plugin.getConfigManager().isBulkRegistration();
+    }
+    
+    /**
+     * Starts applying the change set
+     * Must be called on the main thread
+     */
+    public void start() {
+        // A budget of zero applies everything at once
+        if (budgetMillis <= 0) {
+            beginBatch(0);
+            while (hasNext()) {
+                applyNext();
+            }
+            ticks = 1;
+            finish();
+            commitBatch();
+            return;
+        }
+        
+        // Apply the first batch right away, the rest on the following ticks
+        tick();
+        if (!isDone()) {
+            task = SchedulerUtil.runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+    
+    /**
+     * Stops applying the change set
+     * Changes that were already applied stay registered and tracked, and are sent to clients right away
+     */
+    public void cancel() {
+        cancelled = true;
+        SchedulerUtil.cancelTask(task);
+        task = null;
+        RecipeRegistryUtil.finishBulk();
+    }
+    
+    /**
+     * Checks if the pipeline has finished or was cancelled
+     * @return true if no more batches will be applied, false otherwise
+     */
+    public boolean isDone() {
+        return cancelled || !hasNext();
+    }
+    
+    /**
+     * Applies one batch within this tick's budget
+     */
+    private void tick() {
+        if (cancelled) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        double budget = computeBudgetMillis(start);
+        long deadline = start + (long) (budget * 1_000_000L);
+        ticks++;
+        beginBatch((long) budget);
+        
+        // Always make progress, even when the server is struggling
+        while (hasNext()) {
+            applyNext();
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        
+        if (!hasNext()) {
+            SchedulerUtil.cancelTask(task);
+            task = null;
+            finish();
+        }
+        commitBatch();
+    }
+    
+    /**
+     * Starts tracing a batch
+     * @param budget the budget of the batch in milliseconds
+     */
+    private void beginBatch(long budget) {
+        batchStartNanos = System.nanoTime();
+        batchEvent = new ApplyBatchEvent();
+        batchEvent.begin();
+        batchEvent.budgetMillis = budget;
+        batchEvent.tick = ticks;
+    }
+    
+    /**
+     * Finishes tracing a batch
+     */
+    private void commitBatch() {
+        batchEvent.last = !hasNext();
+        batchEvent.commit();
+        batchEvent = null;
+        workNanos += System.nanoTime() - batchStartNanos;
+        
+        // The apply phase is the time spent on the main thread, not the ticks in between
+        if (!hasNext()) {
+            plugin.getMetrics().observePhase(AmnesiaMetrics.Phase.APPLY, workNanos);
+        }
+    }
+    
+    /**
+     * Computes how many milliseconds this tick may spend applying changes
+     * The configured budget is shrunk to the headroom left in the tick, so a lagging server gets smaller batches
+     * @param now the current time in nanoseconds
+     * @return the budget in milliseconds
+     */
+    private double computeBudgetMillis(long now) {
+        double tickMillis = measureTickMillis(now);
+        double headroom = TICK_MILLIS - tickMillis;
+        return Math.max(MIN_BUDGET_MILLIS, Math.min(budgetMillis, headroom));
+    }
+    
+    /**
+     * Measures the server's current tick time
+     * Uses Paper's average tick time, falling back to the time between our own batches where it is unavailable
+     * @param now the current time in nanoseconds
+     * @return the tick time in milliseconds
+     */
+    private double measureTickMillis(long now) {
+        long previous = lastTickNanos;
+        lastTickNanos = now;
+        
+        if (tickTimeSupported) {
+            try {
+                return Bukkit.getAverageTickTime();
+            } catch (UnsupportedOperationException | NoSuchMethodError e) {
+                tickTimeSupported = false;
+            }
+        }
+        
+        if (previous == 0) {
+            return 0;
+        }
+        // Time between two of our batches beyond one tick is time the server spent lagging
+        return Math.max(0, (now - previous) / 1_000_000.0 - TICK_MILLIS);
+    }
+    
+    /**
+     * Checks if there are changes left to apply
+     * @return true if there are changes left, false otherwise
+     */
+    private boolean hasNext() {
+        return changeIndex < changes.getChanges().size();
+    }
+    
+    /**
+     * Applies the next recipe's changes, re-registering it right after removing it
+     * A replaced recipe is never missing from the registry across ticks
+     */
+    private void applyNext() {
+        RecipeChangeSet.Change change = changes.getChanges().get(changeIndex++);
+        if (change.remove()) {
+            RecipeRegistryUtil.removeRecipe(change.key(), bulk);
+            registeredResults.remove(change.key());
+            batchEvent.removedCount++;
+        }
+        
+        RecipeChangeSet.Addition addition = change.addition();
+        if (addition == null) {
+            return;
+        }
+        
+        // Only now build the real recipe from its descriptor
+        Recipe recipe = addition.toRecipe();
+        if (recipe != null) {
+            RecipeRegistryUtil.addRecipe(recipe, bulk);
+            registeredResults.put(addition.descriptor().key(), addition.result());
+            batchEvent.registeredCount++;
+        } else {
+            batchEvent.builderMisses++;
+            plugin.getMetrics().recordBuilderMiss();
+        }
+    }
+    
+    /**
+     * Sends the recipe update, logs the outcome and runs the completion callback
+     */
+    private void finish() {
+        // Bulk changes were not resent one by one, so send them to clients once
+        // This also covers changes an earlier cancelled pipeline left behind, even if this change set is empty
+        RecipeRegistryUtil.finishBulk();
+        
+        plugin.getLogger().info("Applied recipe changes over " + ticks + " tick(s): " + changes.getRemovalCount() +
+                " removed, " + changes.getAdditionCount() + " registered, " + changes.getUnchanged() + " unchanged");
+        onComplete.run();
+    }
+}
@@ -0,0 +1,156 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Recipe;
+import top.modpotato.Amnesia.recipe.builder.RecipeBuilderFactory;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The set of registry mutations needed to move the server from its current recipes to a target set
+ * Mutations are grouped per recipe, so a recipe that is replaced is removed and re-registered in the same step
+ */
+public class RecipeChangeSet {
+    private final List<Change> changes;
+    private final int removals;
+    private final int additions;
+    private final int unchanged;
+
+    private RecipeChangeSet(List<Change> changes, int unchanged) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.unchanged = unchanged;
+
+        int removed = 0;
+        int added = 0;
+        for (Change change : changes) {
+            removed += change.remove() ? 1 : 0;
+            added += change.addition() != null ? 1 : 0;
+        }
+        this.removals = removed;
+        this.additions = added;
+    }
+
+    /**
+     * Creates a change set that removes every managed recipe and registers every target recipe
+     * @param recipes the descriptors of all recipes managed by the plugin
+     * @param target the results that should be registered afterwards, by recipe key
+     * @return the change set
+     */
+    public static RecipeChangeSet full(Map<NamespacedKey, RecipeDescriptor> recipes,
+                                       Map<NamespacedKey, ResultDescriptor> target) {
+        List<Change> changes = new ArrayList<>();
+        for (RecipeDescriptor descriptor : recipes.values()) {
+            ResultDescriptor result = target.get(descriptor.key());
+            changes.add(new Change(descriptor.key(), true, result != null ? new Addition(descriptor, result) : null));
+        }
+        return new RecipeChangeSet(changes, 0);
+    }
+
+    /**
+     * Creates a change set that only touches recipes whose result differs from the registered one
+     * @param recipes the descriptors of all recipes managed by the plugin
+     * @param registered the results currently registered on the server, by recipe key
+     * @param target the results that should be registered afterwards, by recipe key
+     * @return the change set
+     */
+    public static RecipeChangeSet diff(Map<NamespacedKey, RecipeDescriptor> recipes,
+                                       Map<NamespacedKey, ResultDescriptor> registered,
+                                       Map<NamespacedKey, ResultDescriptor> target) {
+        List<Change> changes = new ArrayList<>();
+        int unchanged = 0;
+
+        for (RecipeDescriptor descriptor : recipes.values()) {
+            NamespacedKey key = descriptor.key();
+            ResultDescriptor current = registered.get(key);
+            ResultDescriptor result = target.get(key);
+
+            if (result == null) {
+                // No target recipe, only remove it if something is still registered
+                if (current != null) {
+                    changes.add(new Change(key, true, null));
+                }
+                continue;
+            }
+
+            // Ingredients never change, so an equal result means the registered recipe is already correct
+            if (result.equals(current)) {
+                unchanged++;
+                continue;
+            }
+
+            changes.add(new Change(key, current != null, new Addition(descriptor, result)));
+        }
+
+        return new RecipeChangeSet(changes, unchanged);
+    }
+
+    /**
+     * Gets the changes, one per recipe
+     * @return the changes
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Gets the number of recipes to remove
+     * @return the number of removals
+     */
+    public int getRemovalCount() {
+        return removals;
+    }
+
+    /**
+     * Gets the number of recipes to register
+     * @return the number of additions
+     */
+    public int getAdditionCount() {
+        return additions;
+    }
+
+    /**
+     * Gets the number of recipes that were skipped because they were already registered
+     * @return the number of unchanged recipes
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Checks if the change set contains no registry mutations
+     * @return true if nothing needs to change, false otherwise
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * The mutations of one recipe, applied together so the recipe is never missing between them
+     * @param key the recipe key
+     * @param remove whether the registered recipe is removed first
+     * @param addition the recipe to register afterwards, or null if it is only removed
+     */
+    public record Change(NamespacedKey key, boolean remove, Addition addition) {
+    }
+
+    /**
+     * A recipe to register, built from its descriptor only when it is registered
+     * @param descriptor the descriptor of the original recipe
+     * @param result the result to register it with
+     */
+    public record Addition(RecipeDescriptor descriptor, ResultDescriptor result) {
+
+        /**
+         * Builds the recipe to register
+         * @return the recipe, or null if its type is not supported
+         */
+        public Recipe toRecipe() {
+            return RecipeBuilderFactory.createRecipe(descriptor, result.toItemStack());
+        }
+    }
+}
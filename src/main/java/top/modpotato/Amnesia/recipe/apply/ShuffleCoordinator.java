@@ -0,0 +1,167 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.plugin.Plugin;
+import top.modpotato.Amnesia.util.SchedulerUtil;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs shuffle requests one at a time
+ * Each request prepares its results asynchronously and applies them on the main thread
+ * A request is in flight until its results were applied or dropped
+ * A newer request supersedes the one in flight, requests waiting behind it are coalesced into the newest one,
+ * and the results of a superseded request are dropped instead of applied
+ */
+public class ShuffleCoordinator {
+    private final Plugin plugin;
+    private long generation;
+    private Request<?> running;
+    private Request<?> pending;
+    
+    /**
+     * Creates a new ShuffleCoordinator
+     * @param plugin the plugin instance
+     */
+    public ShuffleCoordinator(Plugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Submits a request, superseding any request that is in flight or waiting
+     * @param preparation prepares the results, called asynchronously
+     * @param apply applies the results, called on the main thread only if no newer request was submitted
+     * @param <T> the type of the prepared results
+     */
+    public synchronized <T> void submit(Preparation<T> preparation, Consumer<T> apply) {
+        Request<T> request = new Request<>(++generation, preparation, apply);
+        
+        if (running == null) {
+            running = request;
+            start(request);
+            return;
+        }
+        
+        // Wait for the running request to notice it was superseded, replacing anything already waiting
+        if (pending != null) {
+            plugin.getLogger().info("Coalesced a waiting shuffle into a newer one");
+        }
+        pending = request;
+    }
+    
+    /**
+     * Prepares the newest request again, such as when the recipes it is preparing from changed
+     * Does nothing if no request is in flight
+     */
+    public synchronized void resubmit() {
+        Request<?> latest = pending != null ? pending : running;
+        if (latest != null) {
+            pending = latest.withGeneration(++generation);
+        }
+    }
+    
+    /**
+     * Checks if a request is being prepared, waiting to be, or waiting for the main thread to apply it
+     * @return true if a request is in flight, false otherwise
+     */
+    public synchronized boolean isBusy() {
+        return running != null;
+    }
+    
+    /**
+     * Checks if a request is still the newest one
+     * @param requestGeneration the generation of the request
+     * @return true if no newer request was submitted, false otherwise
+     */
+    private synchronized boolean isCurrent(long requestGeneration) {
+        return generation == requestGeneration;
+    }
+    
+    /**
+     * Prepares a request asynchronously, then applies it on the main thread if it is still current
+     * @param request the request
+     * @param <T> the type of the prepared results
+     */
+    private <T> void start(Request<T> request) {
+        SchedulerUtil.runAsync(plugin, () -> {
+            T result = null;
+            try {
+                if (isCurrent(request.generation())) {
+                    result = request.preparation().prepare(() -> !isCurrent(request.generation()));
+                }
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error preparing recipe data: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                // Prepared requests stay in flight until the main thread applied or dropped them
+                if (result == null) {
+                    finish();
+                }
+            }
+            
+            if (result == null) {
+                return;
+            }
+            
+            T prepared = result;
+            SchedulerUtil.runTask(plugin, () -> {
+                try {
+                    // A request submitted while this one was prepared or waiting for the main thread wins
+                    if (isCurrent(request.generation())) {
+                        request.apply().accept(prepared);
+                    } else {
+                        plugin.getLogger().info("Dropped the results of a superseded shuffle");
+                    }
+                } finally {
+                    finish();
+                }
+            });
+        });
+    }
+    
+    /**
+     * Marks the running request as done and starts the waiting one, if any
+     */
+    private synchronized void finish() {
+        running = pending;
+        pending = null;
+        if (running != null) {
+            start(running);
+        }
+    }
+    
+    /**
+     * Prepares the results of a request
+     * @param <T> the type of the prepared results
+     */
+    @FunctionalInterface
+    public interface Preparation<T> {
+        
+        /**
+         * Prepares the results
+         * @param superseded returns true once a newer request was submitted, so the work can stop early
+         * @return the results, or null if there is nothing to apply
+         * @throws Exception if the results could not be prepared
+         */
+        T prepare(BooleanSupplier superseded) throws Exception;
+    }
+    
+    /**
+     * A submitted request
+     * @param generation the generation the request was submitted in
+     * @param preparation prepares the results
+     * @param apply applies the results
+     * @param <T> the type of the prepared results
+     */
+    private record Request<T>(long generation, Preparation<T> preparation, Consumer<T> apply) {
+        
+        /**
+         * Copies the request into a new generation
+         * @param newGeneration the new generation
+         * @return the copy
+         */
+        Request<T> withGeneration(long newGeneration) {
+            return new Request<>(newGeneration, preparation, apply);
+        }
+    }
+}
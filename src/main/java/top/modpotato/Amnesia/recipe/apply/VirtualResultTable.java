@@ -0,0 +1,251 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable lookup from recipe key to shuffled result, used by the virtual apply mode
+ * Every remapped recipe gets a dense ordinal, found by hashing its key into open-addressed parallel arrays
+ * The global shuffle and each namespace are stored as an int array indexed by ordinal, pointing into one pool of
+ * distinct results, so each namespace only costs an int per recipe
+ * Results are built once when the table is created and shared by every lookup, they must never be modified
+ * The table is the only copy of the namespace results, they are decoded from it when they are needed again
+ */
+public final class VirtualResultTable {
+    /**
+     * A table without any results, nothing is remapped
+     */
+    public static final VirtualResultTable EMPTY = new VirtualResultTable(new NamespacedKey[1], new int[1],
+            new ResultDescriptor[0], new ItemStack[0], new int[0], Collections.emptyMap());
+    
+    private static final int ORIGINAL = -1;
+    
+    private final NamespacedKey[] keys;
+    private final int[] ordinals;
+    private final int mask;
+    private final ResultDescriptor[] descriptors;
+    private final ItemStack[] pool;
+    private final int[] global;
+    private final Map<String, int[]> namespaces;
+    
+    private VirtualResultTable(NamespacedKey[] keys, int[] ordinals, ResultDescriptor[] descriptors, ItemStack[] pool,
+                               int[] global, Map<String, int[]> namespaces) {
+        this.keys = keys;
+        this.ordinals = ordinals;
+        this.mask = keys.length - 1;
+        this.descriptors = descriptors;
+        this.pool = pool;
+        this.global = global;
+        this.namespaces = namespaces;
+    }
+    
+    /**
+     * Creates a table of every recipe whose shuffled result differs from its original result
+     * Can be called asynchronously, the table is only shared once it is complete
+     * @param recipes the original recipes
+     * @param target the shuffled results of the global shuffle, by recipe key
+     * @param namespaceTargets the shuffled results of each namespace, by namespace name and recipe key
+     * @return the table
+     */
+    public static VirtualResultTable of(Map<NamespacedKey, RecipeDescriptor> recipes,
+                                       Map<NamespacedKey, ResultDescriptor> target,
+                                       Map<String, Map<NamespacedKey, ResultDescriptor>> namespaceTargets) {
+        // Give every recipe that is remapped anywhere an ordinal
+        Map<NamespacedKey, Integer> ordinalsByKey = new HashMap<>();
+        collectOrdinals(recipes, target, ordinalsByKey);
+        for (Map<NamespacedKey, ResultDescriptor> namespaceTarget : namespaceTargets.values()) {
+            collectOrdinals(recipes, namespaceTarget, ordinalsByKey);
+        }
+        if (ordinalsByKey.isEmpty()) {
+            return EMPTY;
+        }
+        
+        // Keep the load factor at or below one half so probes stay short
+        int capacity = Integer.highestOneBit(ordinalsByKey.size() * 2 - 1) << 1;
+        NamespacedKey[] keys = new NamespacedKey[capacity];
+        int[] ordinals = new int[capacity];
+        for (Map.Entry<NamespacedKey, Integer> entry : ordinalsByKey.entrySet()) {
+            int slot = spread(entry.getKey().hashCode()) & (capacity - 1);
+            while (keys[slot] != null) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = entry.getKey();
+            ordinals[slot] = entry.getValue();
+        }
+        
+        // Results are interned, so equal results across the global shuffle and namespaces share a pool entry
+        Map<ResultDescriptor, Integer> poolIndexes = new HashMap<>();
+        List<ResultDescriptor> pool = new ArrayList<>();
+        int[] global = encode(recipes, target, ordinalsByKey, poolIndexes, pool);
+        Map<String, int[]> namespaces = new HashMap<>();
+        for (Map.Entry<String, Map<NamespacedKey, ResultDescriptor>> entry : namespaceTargets.entrySet()) {
+            namespaces.put(entry.getKey(), encode(recipes, entry.getValue(), ordinalsByKey, poolIndexes, pool));
+        }
+        
+        ItemStack[] stacks = new ItemStack[pool.size()];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = pool.get(i).toItemStack();
+        }
+        return new VirtualResultTable(keys, ordinals, pool.toArray(new ResultDescriptor[0]), stacks, global,
+                Collections.unmodifiableMap(namespaces));
+    }
+    
+    /**
+     * Gets the shuffled result of a recipe in the global shuffle
+     * Allocation-free, safe to call from any thread
+     * @param key the recipe key
+     * @return the shared result, or null if the recipe keeps its original result
+     */
+    public ItemStack get(NamespacedKey key) {
+        return get(key, null);
+    }
+    
+    /**
+     * Gets the shuffled result of a recipe in a namespace
+     * Allocation-free, safe to call from any thread
+     * @param key the recipe key
+     * @param namespace the namespace name, or null for the global shuffle
+     * @return the shared result, or null if the recipe keeps its original result
+     */
+    public ItemStack get(NamespacedKey key, String namespace) {
+        int slot = spread(key.hashCode()) & mask;
+        NamespacedKey candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                int[] results = namespace == null ? global : namespaces.getOrDefault(namespace, global);
+                int result = results[ordinals[slot]];
+                return result == ORIGINAL ? null : pool[result];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    /**
+     * Decodes the results a namespace gives a set of recipes
+     * Recipes the namespace doesn't remap get the original result they had when the table was created
+     * @param namespace the namespace name
+     * @param recipes the recipes to decode, by recipe key
+     * @return the results by recipe key, or null if the table has no such namespace
+     */
+    public Map<NamespacedKey, ResultDescriptor> getResults(String namespace,
+                                                           Map<NamespacedKey, RecipeDescriptor> recipes) {
+        int[] results = namespaces.get(namespace);
+        if (results == null) {
+            return null;
+        }
+        
+        Map<NamespacedKey, ResultDescriptor> decoded = new HashMap<>();
+        for (RecipeDescriptor descriptor : recipes.values()) {
+            decoded.put(descriptor.key(), descriptor.result());
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            int result = keys[slot] != null ? results[ordinals[slot]] : ORIGINAL;
+            if (result != ORIGINAL && decoded.containsKey(keys[slot])) {
+                decoded.put(keys[slot], descriptors[result]);
+            }
+        }
+        return decoded;
+    }
+    
+    /**
+     * Gets the names of the namespaces in the table
+     * @return the namespace names
+     */
+    public Set<String> getNamespaceNames() {
+        return namespaces.keySet();
+    }
+    
+    /**
+     * Checks if the table remaps any recipe
+     * @return true if no recipe is remapped, false otherwise
+     */
+    public boolean isEmpty() {
+        return global.length == 0;
+    }
+    
+    /**
+     * Gets the number of recipes remapped by the global shuffle or any namespace
+     * @return the number of recipes
+     */
+    public int size() {
+        return global.length;
+    }
+    
+    /**
+     * Gets the number of namespaces in the table
+     * @return the number of namespaces
+     */
+    public int getNamespaceCount() {
+        return namespaces.size();
+    }
+    
+    /**
+     * Assigns ordinals to the recipes a shuffle remaps
+     * @param recipes the original recipes
+     * @param target the shuffled results
+     * @param ordinalsByKey the ordinals assigned so far
+     */
+    private static void collectOrdinals(Map<NamespacedKey, RecipeDescriptor> recipes,
+                                        Map<NamespacedKey, ResultDescriptor> target,
+                                        Map<NamespacedKey, Integer> ordinalsByKey) {
+        for (Map.Entry<NamespacedKey, ResultDescriptor> entry : target.entrySet()) {
+            RecipeDescriptor descriptor = recipes.get(entry.getKey());
+            if (descriptor != null && !descriptor.result().equals(entry.getValue())) {
+                ordinalsByKey.putIfAbsent(entry.getKey(), ordinalsByKey.size());
+            }
+        }
+    }
+    
+    /**
+     * Encodes a shuffle as pool indexes by ordinal, adding new results to the pool
+     * @param recipes the original recipes
+     * @param target the shuffled results
+     * @param ordinalsByKey the ordinal of every remapped recipe
+     * @param poolIndexes the pool index of every result in the pool
+     * @param pool the result pool
+     * @return the pool index of each ordinal's result, or ORIGINAL if it keeps its original result
+     */
+    private static int[] encode(Map<NamespacedKey, RecipeDescriptor> recipes,
+                                Map<NamespacedKey, ResultDescriptor> target,
+                                Map<NamespacedKey, Integer> ordinalsByKey,
+                                Map<ResultDescriptor, Integer> poolIndexes, List<ResultDescriptor> pool) {
+        int[] results = new int[ordinalsByKey.size()];
+        Arrays.fill(results, ORIGINAL);
+        
+        for (Map.Entry<NamespacedKey, ResultDescriptor> entry : target.entrySet()) {
+            RecipeDescriptor descriptor = recipes.get(entry.getKey());
+            if (descriptor == null || descriptor.result().equals(entry.getValue())) {
+                continue;
+            }
+            
+            Integer poolIndex = poolIndexes.get(entry.getValue());
+            if (poolIndex == null) {
+                poolIndex = pool.size();
+                poolIndexes.put(entry.getValue(), poolIndex);
+                pool.add(entry.getValue());
+            }
+            results[ordinalsByKey.get(entry.getKey())] = poolIndex;
+        }
+        return results;
+    }
+    
+    /**
+     * Spreads the high bits of a hash code into the low bits used for the slot
+     * @param hash the hash code
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,8 +1,8 @@
 package top.modpotato.Amnesia.recipe.builder;
 
-import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
 
 /**
  * Functional interface for building recipes
@@ -10,11 +10,10 @@ import org.bukkit.inventory.Recipe;
 @FunctionalInterface
 public interface RecipeBuilder {
     /**
-     * Creates a new recipe with a different result
-     * @param key the recipe key
-     * @param originalRecipe the original recipe
+     * Creates a recipe from a descriptor with a different result
+     * @param descriptor the descriptor of the original recipe
      * @param newResult the new result
      * @return the new recipe, or null if the recipe type is not supported
      */
-    Recipe createRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult);
-} 
\ No newline at end of file
+    Recipe createRecipe(RecipeDescriptor descriptor, ItemStack newResult);
+} 
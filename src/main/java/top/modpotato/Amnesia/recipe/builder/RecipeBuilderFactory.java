@@ -1,6 +1,5 @@
 package top.modpotato.Amnesia.recipe.builder;
 
-import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.BlastingRecipe;
 import org.bukkit.inventory.CampfireRecipe;
 import org.bukkit.inventory.FurnaceRecipe;
@@ -11,56 +10,57 @@ import org.bukkit.inventory.ShapedRecipe;
 import org.bukkit.inventory.ShapelessRecipe;
 import org.bukkit.inventory.SmokingRecipe;
 import org.bukkit.inventory.StonecuttingRecipe;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeType;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
  * Factory for creating recipe builders
  */
 public class RecipeBuilderFactory {
-    private static final Map<Class<? extends Recipe>, RecipeBuilder> BUILDERS = new HashMap<>();
+    private static final Map<RecipeType, RecipeBuilder> BUILDERS = new EnumMap<>(RecipeType.class);
     
     static {
         // Register builders for each recipe type
-        registerBuilder(ShapedRecipe.class, RecipeBuilderFactory::createShapedRecipe);
-        registerBuilder(ShapelessRecipe.class, RecipeBuilderFactory::createShapelessRecipe);
-        registerBuilder(FurnaceRecipe.class, RecipeBuilderFactory::createFurnaceRecipe);
-        registerBuilder(BlastingRecipe.class, RecipeBuilderFactory::createBlastingRecipe);
-        registerBuilder(SmokingRecipe.class, RecipeBuilderFactory::createSmokingRecipe);
-        registerBuilder(CampfireRecipe.class, RecipeBuilderFactory::createCampfireRecipe);
-        registerBuilder(StonecuttingRecipe.class, RecipeBuilderFactory::createStonecuttingRecipe);
+        registerBuilder(RecipeType.SHAPED, RecipeBuilderFactory::createShapedRecipe);
+        registerBuilder(RecipeType.SHAPELESS, RecipeBuilderFactory::createShapelessRecipe);
+        registerBuilder(RecipeType.FURNACE, RecipeBuilderFactory::createFurnaceRecipe);
+        registerBuilder(RecipeType.BLASTING, RecipeBuilderFactory::createBlastingRecipe);
+        registerBuilder(RecipeType.SMOKING, RecipeBuilderFactory::createSmokingRecipe);
+        registerBuilder(RecipeType.CAMPFIRE, RecipeBuilderFactory::createCampfireRecipe);
+        registerBuilder(RecipeType.STONECUTTING, RecipeBuilderFactory::createStonecuttingRecipe);
     }
     
     /**
      * Registers a builder for a recipe type
-     * @param recipeClass the recipe class
+     * @param recipeType the recipe type
      * @param builder the builder
      */
-    public static <T extends Recipe> void registerBuilder(Class<T> recipeClass, RecipeBuilder builder) {
-        BUILDERS.put(recipeClass, builder);
+    public static void registerBuilder(RecipeType recipeType, RecipeBuilder builder) {
+        BUILDERS.put(recipeType, builder);
     }
     
     /**
-     * Gets a builder for a recipe
-     * @param recipe the recipe
+     * Gets a builder for a recipe descriptor
+     * @param descriptor the recipe descriptor
      * @return the builder, or null if no builder is registered for the recipe type
      */
-    public static RecipeBuilder getBuilder(Recipe recipe) {
-        return BUILDERS.get(recipe.getClass());
+    public static RecipeBuilder getBuilder(RecipeDescriptor descriptor) {
+        return BUILDERS.get(descriptor.type());
     }
     
     /**
-     * Creates a new recipe with a different result
-     * @param key the recipe key
-     * @param originalRecipe the original recipe
+     * Creates a recipe from a descriptor with a different result
+     * @param descriptor the descriptor of the original recipe
      * @param newResult the new result
      * @return the new recipe, or null if no builder is registered for the recipe type
      */
-    public static Recipe createRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        RecipeBuilder builder = getBuilder(originalRecipe);
+    public static Recipe createRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
+        RecipeBuilder builder = getBuilder(descriptor);
         if (builder != null) {
-            return builder.createRecipe(key, originalRecipe, newResult);
+            return builder.createRecipe(descriptor, newResult);
         }
         return null;
     }
@@ -68,18 +68,17 @@ public class RecipeBuilderFactory {
     /**
      * Creates a shaped recipe
      */
-    private static Recipe createShapedRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        ShapedRecipe original = (ShapedRecipe) originalRecipe;
-        ShapedRecipe shuffled = new ShapedRecipe(key, newResult);
+    private static Recipe createShapedRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
+        ShapedRecipe shuffled = new ShapedRecipe(descriptor.key(), newResult);
         
         // Copy shape
-        shuffled.shape(original.getShape());
+        shuffled.shape(descriptor.shape());
         
-        // Copy ingredients with null check
-        for (Map.Entry<Character, RecipeChoice> entry : original.getChoiceMap().entrySet()) {
-            if (entry.getValue() != null) {
-                shuffled.setIngredient(entry.getKey(), entry.getValue());
-            }
+        // Copy ingredients
+        char[] ingredientKeys = descriptor.ingredientKeys();
+        RecipeChoice[] ingredients = descriptor.ingredients();
+        for (int i = 0; i < ingredientKeys.length; i++) {
+            shuffled.setIngredient(ingredientKeys[i], ingredients[i]);
         }
         
         return shuffled;
@@ -88,15 +87,12 @@ public class RecipeBuilderFactory {
     /**
      * Creates a shapeless recipe
      */
-    private static Recipe createShapelessRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        ShapelessRecipe original = (ShapelessRecipe) originalRecipe;
-        ShapelessRecipe shuffled = new ShapelessRecipe(key, newResult);
+    private static Recipe createShapelessRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
+        ShapelessRecipe shuffled = new ShapelessRecipe(descriptor.key(), newResult);
         
-        // Copy ingredients with null check
-        for (RecipeChoice ingredient : original.getChoiceList()) {
-            if (ingredient != null) {
-                shuffled.addIngredient(ingredient);
-            }
+        // Copy ingredients
+        for (RecipeChoice ingredient : descriptor.ingredients()) {
+            shuffled.addIngredient(ingredient);
         }
         
         return shuffled;
@@ -105,68 +101,63 @@ public class RecipeBuilderFactory {
     /**
      * Creates a furnace recipe
      */
-    private static Recipe createFurnaceRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        FurnaceRecipe original = (FurnaceRecipe) originalRecipe;
+    private static Recipe createFurnaceRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
         return new FurnaceRecipe(
-                key,
+                descriptor.key(),
                 newResult,
-                original.getInputChoice(),
-                original.getExperience(),
-                original.getCookingTime()
+                descriptor.inputChoice(),
+                descriptor.experience(),
+                descriptor.cookingTime()
         );
     }
     
     /**
      * Creates a blasting recipe
      */
-    private static Recipe createBlastingRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        BlastingRecipe original = (BlastingRecipe) originalRecipe;
+    private static Recipe createBlastingRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
         return new BlastingRecipe(
-                key,
+                descriptor.key(),
                 newResult,
-                original.getInputChoice(),
-                original.getExperience(),
-                original.getCookingTime()
+                descriptor.inputChoice(),
+                descriptor.experience(),
+                descriptor.cookingTime()
         );
     }
     
     /**
      * Creates a smoking recipe
      */
-    private static Recipe createSmokingRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        SmokingRecipe original = (SmokingRecipe) originalRecipe;
+    private static Recipe createSmokingRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
         return new SmokingRecipe(
-                key,
+                descriptor.key(),
                 newResult,
-                original.getInputChoice(),
-                original.getExperience(),
-                original.getCookingTime()
+                descriptor.inputChoice(),
+                descriptor.experience(),
+                descriptor.cookingTime()
         );
     }
     
     /**
      * Creates a campfire recipe
      */
-    private static Recipe createCampfireRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        CampfireRecipe original = (CampfireRecipe) originalRecipe;
+    private static Recipe createCampfireRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
         return new CampfireRecipe(
-                key,
+                descriptor.key(),
                 newResult,
-                original.getInputChoice(),
-                original.getExperience(),
-                original.getCookingTime()
+                descriptor.inputChoice(),
+                descriptor.experience(),
+                descriptor.cookingTime()
         );
     }
     
     /**
      * Creates a stonecutting recipe
      */
-    private static Recipe createStonecuttingRecipe(NamespacedKey key, Recipe originalRecipe, ItemStack newResult) {
-        StonecuttingRecipe original = (StonecuttingRecipe) originalRecipe;
+    private static Recipe createStonecuttingRecipe(RecipeDescriptor descriptor, ItemStack newResult) {
         return new StonecuttingRecipe(
-                key,
+                descriptor.key(),
                 newResult,
-                original.getInputChoice()
+                descriptor.inputChoice()
         );
     }
 } 
\ No newline at end of file
@@ -0,0 +1,109 @@
+package top.modpotato.Amnesia.recipe.descriptor;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.CookingRecipe;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+import org.bukkit.inventory.StonecuttingRecipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compact description of a recipe
+ * Holds everything needed to rebuild the recipe with any result, without keeping the live Recipe object
+ * @param key the recipe key
+ * @param type the recipe type
+ * @param shape the shape rows for shaped recipes, otherwise empty
+ * @param ingredientKeys the shape characters of the ingredients for shaped recipes, otherwise empty
+ * @param ingredients the ingredient choices, a single input choice for cooking and stonecutting recipes
+ * @param experience the experience for cooking recipes, otherwise 0
+ * @param cookingTime the cooking time for cooking recipes, otherwise 0
+ * @param result the original result
+ */
+public record RecipeDescriptor(NamespacedKey key, RecipeType type, String[] shape, char[] ingredientKeys,
+                               RecipeChoice[] ingredients, float experience, int cookingTime,
+                               ResultDescriptor result) {
+    private static final String[] NO_SHAPE = new String[0];
+    private static final char[] NO_INGREDIENT_KEYS = new char[0];
+    
+    /**
+     * Captures a recipe
+     * @param key the recipe key
+     * @param recipe the recipe
+     * @param interner the interner to share choices, shapes and results with other descriptors
+     * @return the descriptor, or null if the recipe type is not supported
+     */
+    public static RecipeDescriptor capture(NamespacedKey key, Recipe recipe, RecipeInterner interner) {
+        RecipeType type = RecipeType.of(recipe);
+        if (type == null) {
+            return null;
+        }
+        
+        ResultDescriptor result = interner.result(recipe.getResult());
+        
+        switch (type) {
+            case SHAPED: {
+                ShapedRecipe shaped = (ShapedRecipe) recipe;
+                String[] shape = shaped.getShape();
+                for (int i = 0; i < shape.length; i++) {
+                    shape[i] = interner.intern(shape[i]);
+                }
+                
+                // Copy ingredients with null check
+                List<Character> keys = new ArrayList<>();
+                List<RecipeChoice> choices = new ArrayList<>();
+                for (Map.Entry<Character, RecipeChoice> entry : shaped.getChoiceMap().entrySet()) {
+                    if (entry.getValue() != null) {
+                        keys.add(entry.getKey());
+                        choices.add(interner.intern(entry.getValue()));
+                    }
+                }
+                
+                char[] ingredientKeys = new char[keys.size()];
+                for (int i = 0; i < ingredientKeys.length; i++) {
+                    ingredientKeys[i] = keys.get(i);
+                }
+                return new RecipeDescriptor(key, type, shape, ingredientKeys,
+                        choices.toArray(new RecipeChoice[0]), 0, 0, result);
+            }
+            
+            case SHAPELESS: {
+                // Copy ingredients with null check
+                List<RecipeChoice> choices = new ArrayList<>();
+                for (RecipeChoice ingredient : ((ShapelessRecipe) recipe).getChoiceList()) {
+                    if (ingredient != null) {
+                        choices.add(interner.intern(ingredient));
+                    }
+                }
+                return new RecipeDescriptor(key, type, NO_SHAPE, NO_INGREDIENT_KEYS,
+                        choices.toArray(new RecipeChoice[0]), 0, 0, result);
+            }
+            
+            case STONECUTTING: {
+                RecipeChoice input = interner.intern(((StonecuttingRecipe) recipe).getInputChoice());
+                return new RecipeDescriptor(key, type, NO_SHAPE, NO_INGREDIENT_KEYS,
+                        new RecipeChoice[] { input }, 0, 0, result);
+            }
+            
+            default: {
+                // Furnace, blasting, smoking and campfire recipes
+                CookingRecipe<?> cooking = (CookingRecipe<?>) recipe;
+                RecipeChoice input = interner.intern(cooking.getInputChoice());
+                return new RecipeDescriptor(key, type, NO_SHAPE, NO_INGREDIENT_KEYS,
+                        new RecipeChoice[] { input }, cooking.getExperience(), cooking.getCookingTime(), result);
+            }
+        }
+    }
+    
+    /**
+     * Gets the single input choice of a cooking or stonecutting recipe
+     * @return the input choice
+     */
+    public RecipeChoice inputChoice() {
+        return ingredients[0];
+    }
+}
@@ -0,0 +1,77 @@
+package top.modpotato.Amnesia.recipe.descriptor;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.RecipeChoice;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares equal ingredient choices, shapes and results between recipe descriptors
+ * Safe to use from multiple threads
+ */
+public class RecipeInterner {
+    private final Map<RecipeChoice, RecipeChoice> choices = new ConcurrentHashMap<>();
+    private final Map<String, String> shapeRows = new ConcurrentHashMap<>();
+    private final Map<ResultDescriptor, ResultDescriptor> results = new ConcurrentHashMap<>();
+    
+    /**
+     * Gets the shared instance of an ingredient choice
+     * @param choice the choice
+     * @return the shared choice
+     */
+    public RecipeChoice intern(RecipeChoice choice) {
+        RecipeChoice shared = choices.putIfAbsent(choice, choice);
+        return shared != null ? shared : choice;
+    }
+    
+    /**
+     * Gets the shared instance of a shape row
+     * @param row the shape row
+     * @return the shared row
+     */
+    public String intern(String row) {
+        String shared = shapeRows.putIfAbsent(row, row);
+        return shared != null ? shared : row;
+    }
+    
+    /**
+     * Gets the shared instance of a result
+     * @param result the result
+     * @return the shared result
+     */
+    public ResultDescriptor intern(ResultDescriptor result) {
+        ResultDescriptor shared = results.putIfAbsent(result, result);
+        return shared != null ? shared : result;
+    }
+    
+    /**
+     * Gets the shared result for an item
+     * @param item the item
+     * @return the shared result
+     */
+    public ResultDescriptor result(ItemStack item) {
+        return intern(ResultDescriptor.of(item));
+    }
+    
+    /**
+     * Gets the shared result for a plain material
+     * @param material the material
+     * @param amount the amount
+     * @return the shared result
+     */
+    public ResultDescriptor result(Material material, int amount) {
+        return intern(ResultDescriptor.of(material, amount));
+    }
+    
+    /**
+     * Forgets all shared instances
+     * Descriptors created earlier keep working, they just stop sharing with new ones
+     */
+    public void clear() {
+        choices.clear();
+        shapeRows.clear();
+        results.clear();
+    }
+}
@@ -0,0 +1,60 @@
+package top.modpotato.Amnesia.recipe.descriptor;
+
+import org.bukkit.inventory.BlastingRecipe;
+import org.bukkit.inventory.CampfireRecipe;
+import org.bukkit.inventory.FurnaceRecipe;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+import org.bukkit.inventory.SmokingRecipe;
+import org.bukkit.inventory.StonecuttingRecipe;
+
+/**
+ * The recipe types supported by the plugin
+ * Types are resolved by supertype once per runtime class, so server implementation subclasses
+ * such as CraftShapedRecipe resolve to their API type with a single cached lookup
+ */
+public enum RecipeType {
+    SHAPED(ShapedRecipe.class),
+    SHAPELESS(ShapelessRecipe.class),
+    FURNACE(FurnaceRecipe.class),
+    BLASTING(BlastingRecipe.class),
+    SMOKING(SmokingRecipe.class),
+    CAMPFIRE(CampfireRecipe.class),
+    STONECUTTING(StonecuttingRecipe.class);
+    
+    private static final ClassValue<RecipeType> BY_CLASS = new ClassValue<>() {
+        @Override
+        protected RecipeType computeValue(Class<?> type) {
+            for (RecipeType recipeType : values()) {
+                if (recipeType.recipeClass.isAssignableFrom(type)) {
+                    return recipeType;
+                }
+            }
+            return null;
+        }
+    };
+    
+    private final Class<? extends Recipe> recipeClass;
+    
+    RecipeType(Class<? extends Recipe> recipeClass) {
+        this.recipeClass = recipeClass;
+    }
+    
+    /**
+     * Gets the type of a recipe
+     * @param recipe the recipe
+     * @return the recipe type, or null if the recipe type is not supported
+     */
+    public static RecipeType of(Recipe recipe) {
+        return recipe != null ? BY_CLASS.get(recipe.getClass()) : null;
+    }
+    
+    /**
+     * Gets the API class of recipes of this type
+     * @return the recipe class
+     */
+    public Class<? extends Recipe> getRecipeClass() {
+        return recipeClass;
+    }
+}
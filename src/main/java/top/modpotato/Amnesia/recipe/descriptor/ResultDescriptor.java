@@ -0,0 +1,55 @@
+package top.modpotato.Amnesia.recipe.descriptor;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * An immutable recipe result
+ * Plain results are just a material and amount, the full item is only kept for results with item meta
+ * @param material the result material
+ * @param amount the result amount
+ * @param stack the full result item if it has item meta, otherwise null
+ */
+public record ResultDescriptor(Material material, int amount, ItemStack stack) {
+    
+    /**
+     * Creates a descriptor of an item
+     * @param item the item
+     * @return the descriptor
+     */
+    public static ResultDescriptor of(ItemStack item) {
+        if (item.hasItemMeta()) {
+            return new ResultDescriptor(item.getType(), item.getAmount(), item.clone());
+        }
+        return new ResultDescriptor(item.getType(), item.getAmount(), null);
+    }
+    
+    /**
+     * Creates a descriptor of a plain material
+     * @param material the material
+     * @param amount the amount
+     * @return the descriptor
+     */
+    public static ResultDescriptor of(Material material, int amount) {
+        return new ResultDescriptor(material, amount, null);
+    }
+    
+    /**
+     * Checks if the result carries item meta
+     * @return true if the full item is kept, false for a plain material and amount
+     */
+    public boolean hasItemMeta() {
+        return stack != null;
+    }
+    
+    /**
+     * Creates a new item for this result
+     * @return a new item
+     */
+    public ItemStack toItemStack() {
+        if (stack != null) {
+            return stack.clone();
+        }
+        return new ItemStack(material, amount);
+    }
+}
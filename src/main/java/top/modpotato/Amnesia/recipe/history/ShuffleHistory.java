@@ -0,0 +1,239 @@
+package top.modpotato.Amnesia.recipe.history;
+
+import top.modpotato.Amnesia.Main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only journal of applied shuffles in history.bin
+ * New entries are appended to the file, it is only rewritten when old entries fall out of the retention limit
+ */
+public class ShuffleHistory {
+    private static final int MAGIC = 0x414D4E48; // "AMNH"
+    private static final int VERSION = 1;
+    
+    private final Main plugin;
+    private final File historyFile;
+    private final List<ShuffleHistoryEntry> entries = new ArrayList<>();
+    
+    /**
+     * Creates a new ShuffleHistory
+     * @param plugin the plugin instance
+     */
+    public ShuffleHistory(Main plugin) {
+        this.plugin = plugin;
+        this.historyFile = new File(plugin.getDataFolder(), "history.bin");
+    }
+    
+    /**
+     * Loads the journal from history.bin
+     * A truncated last entry, such as after a crash mid-write, is dropped
+     */
+    public synchronized void load() {
+        entries.clear();
+        if (!historyFile.exists()) {
+            return;
+        }
+        
+        boolean truncated = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(historyFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.getLogger().warning("Replacing history.bin with an unknown format");
+                rewrite();
+                return;
+            }
+            
+            // Entries start with their timestamp, a clean end of file can only come right before one
+            int first;
+            while ((first = in.read()) >= 0) {
+                try {
+                    entries.add(readEntry(in, first));
+                } catch (EOFException e) {
+                    truncated = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not load history.bin: " + e.getMessage());
+            truncated = true;
+        }
+        
+        if (truncated) {
+            plugin.getLogger().warning("Dropped an incomplete entry from history.bin");
+            rewrite();
+        }
+        trim();
+    }
+    
+    /**
+     * Appends an applied shuffle to the journal
+     * Encoding and writing happen on the calling thread, so this should not be called on the main thread
+     * @param entry the entry to append
+     */
+    public synchronized void append(ShuffleHistoryEntry entry) {
+        int retention = plugin.getConfigManager().getHistorySize();
+        if (retention <= 0) {
+            return;
+        }
+        
+        entries.add(entry);
+        if (entries.size() > retention) {
+            trim();
+            return;
+        }
+        
+        boolean newFile = !historyFile.exists();
+        plugin.getDataFolder().mkdirs();
+        try (FileOutputStream file = new FileOutputStream(historyFile, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            if (newFile) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            writeEntry(out, entry);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not append to history.bin: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the entries, newest first
+     * @return the entries
+     */
+    public synchronized List<ShuffleHistoryEntry> getEntries() {
+        List<ShuffleHistoryEntry> newestFirst = new ArrayList<>(entries);
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+    
+    /**
+     * Gets an entry by its position in the history
+     * @param index the position, 1 being the newest entry
+     * @return the entry, or null if there is no entry at that position
+     */
+    public synchronized ShuffleHistoryEntry getEntry(int index) {
+        if (index < 1 || index > entries.size()) {
+            return null;
+        }
+        return entries.get(entries.size() - index);
+    }
+    
+    /**
+     * Drops the oldest entries beyond the retention limit and rewrites the file if any were dropped
+     */
+    private void trim() {
+        int retention = Math.max(0, plugin.getConfigManager().getHistorySize());
+        if (entries.size() <= retention) {
+            return;
+        }
+        
+        entries.subList(0, entries.size() - retention).clear();
+        rewrite();
+    }
+    
+    /**
+     * Rewrites the whole file from the entries in memory, through a temp file and an atomic rename
+     */
+    private void rewrite() {
+        Path target = historyFile.toPath();
+        Path temp = target.resolveSibling(historyFile.getName() + ".tmp");
+        plugin.getDataFolder().mkdirs();
+        
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (ShuffleHistoryEntry entry : entries) {
+                    writeEntry(out, entry);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save history.bin: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes an entry
+     * @param out the stream to write to
+     * @param entry the entry
+     * @throws IOException if the entry could not be written
+     */
+    private static void writeEntry(DataOutputStream out, ShuffleHistoryEntry entry) throws IOException {
+        out.writeLong(entry.timestamp());
+        out.writeLong(entry.seed());
+        out.writeBoolean(entry.userSetSeed());
+        out.writeUTF(entry.mode());
+        out.writeLong(entry.exclusionFingerprint());
+        out.writeInt(entry.recipeCount());
+        out.writeInt(entry.encodedPlan().length);
+        out.write(entry.encodedPlan());
+        out.writeInt(entry.encodedNamespaces().size());
+        for (Map.Entry<String, byte[]> namespace : entry.encodedNamespaces().entrySet()) {
+            out.writeUTF(namespace.getKey());
+            out.writeInt(namespace.getValue().length);
+            out.write(namespace.getValue());
+        }
+    }
+    
+    /**
+     * Reads an entry after the first byte of its timestamp
+     * @param in the stream to read from
+     * @param first the first byte that was already read
+     * @return the entry
+     * @throws IOException if the entry could not be read
+     */
+    private static ShuffleHistoryEntry readEntry(DataInputStream in, int first) throws IOException {
+        byte[] timestampBytes = new byte[Long.BYTES];
+        timestampBytes[0] = (byte) first;
+        in.readFully(timestampBytes, 1, Long.BYTES - 1);
+        long timestamp = ByteBuffer.wrap(timestampBytes).getLong();
+        
+        long seed = in.readLong();
+        boolean userSetSeed = in.readBoolean();
+        String mode = in.readUTF();
+        long exclusionFingerprint = in.readLong();
+        int recipeCount = in.readInt();
+        byte[] encodedPlan = new byte[in.readInt()];
+        in.readFully(encodedPlan);
+        
+        Map<String, byte[]> encodedNamespaces = new HashMap<>();
+        int namespaceCount = in.readInt();
+        for (int i = 0; i < namespaceCount; i++) {
+            String name = in.readUTF();
+            byte[] encodedNamespace = new byte[in.readInt()];
+            in.readFully(encodedNamespace);
+            encodedNamespaces.put(name, encodedNamespace);
+        }
+        return new ShuffleHistoryEntry(timestamp, seed, userSetSeed, mode, exclusionFingerprint, recipeCount,
+                encodedPlan, encodedNamespaces);
+    }
+}
@@ -0,0 +1,50 @@
+package top.modpotato.Amnesia.recipe.history;
+
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlan;
+import top.modpotato.Amnesia.recipe.plan.ShufflePlanCodec;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An applied shuffle in the history journal
+ * The plan is kept encoded and only decoded when it is rolled back to
+ * @param timestamp when the shuffle was applied, in milliseconds since epoch
+ * @param seed the seed
+ * @param userSetSeed whether the seed was set by the user
+ * @param mode the shuffle mode
+ * @param exclusionFingerprint the fingerprint of the exclusion lists at the time
+ * @param recipeCount the number of recipes in the plan
+ * @param encodedPlan the plan, encoded with {@link ShufflePlanCodec}
+ * @param encodedNamespaces the plan of each shuffle namespace by name, encoded the same way
+ */
+public record ShuffleHistoryEntry(long timestamp, long seed, boolean userSetSeed, String mode,
+                                  long exclusionFingerprint, int recipeCount, byte[] encodedPlan,
+                                  Map<String, byte[]> encodedNamespaces) {
+    
+    /**
+     * Decodes the stored plan
+     * @param interner the interner to share the loaded results with the recipe descriptors
+     * @return the plan
+     * @throws IOException if the plan could not be decoded
+     */
+    public ShufflePlan decodePlan(RecipeInterner interner) throws IOException {
+        return ShufflePlanCodec.decode(encodedPlan, interner);
+    }
+    
+    /**
+     * Decodes the stored namespace plans
+     * @param interner the interner to share the loaded results with the recipe descriptors
+     * @return the plan of each namespace by name
+     * @throws IOException if a plan could not be decoded
+     */
+    public Map<String, ShufflePlan> decodeNamespaces(RecipeInterner interner) throws IOException {
+        Map<String, ShufflePlan> namespaces = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : encodedNamespaces.entrySet()) {
+            namespaces.put(entry.getKey(), ShufflePlanCodec.decode(entry.getValue(), interner));
+        }
+        return namespaces;
+    }
+}
@@ -0,0 +1,167 @@
+package top.modpotato.Amnesia.recipe.plan;
+
+import org.bukkit.NamespacedKey;
+import top.modpotato.Amnesia.config.RandomItemWeights;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+import top.modpotato.Amnesia.recipe.util.HashUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A computed shuffle, mapping each recipe key to its shuffled result
+ * The fingerprint identifies the inputs the plan was computed from
+ */
+public class ShufflePlan {
+    private final long fingerprint;
+    private final Map<NamespacedKey, ResultDescriptor> results;
+    
+    /**
+     * Creates a new ShufflePlan
+     * @param fingerprint the fingerprint of the inputs the plan was computed from
+     * @param results the shuffled result of each recipe
+     */
+    public ShufflePlan(long fingerprint, Map<NamespacedKey, ResultDescriptor> results) {
+        this.fingerprint = fingerprint;
+        this.results = Collections.unmodifiableMap(results);
+    }
+    
+    /**
+     * Creates a plan from a snapshot of shuffled results
+     * @param fingerprint the fingerprint of the inputs the results were computed from
+     * @param shuffledResults the shuffled result of each recipe
+     * @return the plan
+     */
+    public static ShufflePlan of(long fingerprint, Map<NamespacedKey, ResultDescriptor> shuffledResults) {
+        return new ShufflePlan(fingerprint, new HashMap<>(shuffledResults));
+    }
+    
+    /**
+     * Computes the fingerprint of the inputs of a shuffle
+     * Any change to the seed, mode, exclusions or the original recipe registry changes the fingerprint
+     * @param seed the seed
+     * @param shuffleMode the shuffle mode
+     * @param excludedRecipes the excluded recipes
+     * @param excludedRandomItems the excluded random items
+     * @param weights the random item weights, or null if the shuffle mode doesn't use them
+     * @param registryFingerprint the fingerprint of the original recipes, see {@link #registryFingerprint(Map)}
+     * @return the fingerprint
+     */
+    public static long fingerprint(long seed, String shuffleMode, List<String> excludedRecipes,
+                                   List<String> excludedRandomItems, RandomItemWeights weights,
+                                   long registryFingerprint) {
+        long hash = HashUtil.INITIAL;
+        hash = HashUtil.hash(hash, seed);
+        hash = HashUtil.hash(hash, shuffleMode.toLowerCase());
+        hash = hashSorted(hash, excludedRecipes);
+        hash = hashSorted(hash, excludedRandomItems);
+        if (weights != null) {
+            hash = HashUtil.hash(hash, Double.doubleToLongBits(weights.defaultWeight()));
+            hash = hashSorted(hash, weights.items());
+            hash = hashSorted(hash, weights.tags());
+            hash = hashSorted(hash, weights.rarities());
+        }
+        return HashUtil.hash(hash, registryFingerprint);
+    }
+    
+    /**
+     * Computes the fingerprint of the original recipe registry
+     * Walks and serializes the whole registry, so it is computed once per registry rather than per shuffle
+     * @param originalRecipes the original recipes
+     * @return the fingerprint
+     */
+    public static long registryFingerprint(Map<NamespacedKey, RecipeDescriptor> originalRecipes) {
+        // Hash the registry in key order so the map's iteration order doesn't matter
+        List<NamespacedKey> keys = new ArrayList<>(originalRecipes.keySet());
+        keys.sort(Comparator.comparing(NamespacedKey::toString));
+        long hash = HashUtil.hash(HashUtil.INITIAL, keys.size());
+        for (NamespacedKey key : keys) {
+            ResultDescriptor result = originalRecipes.get(key).result();
+            hash = HashUtil.hash(hash, key.toString());
+            hash = HashUtil.hash(hash, result.material().name());
+            hash = HashUtil.hash(hash, result.amount());
+            // Hash the serialized meta, ItemStack.hashCode is not stable across restarts
+            if (result.hasItemMeta()) {
+                hash = HashUtil.hash(hash, result.stack().serializeAsBytes());
+            } else {
+                hash = HashUtil.hash(hash, 0L);
+            }
+        }
+        return hash;
+    }
+    
+    /**
+     * Computes the fingerprint of the exclusion lists alone
+     * @param excludedRecipes the excluded recipes
+     * @param excludedRandomItems the excluded random items
+     * @return the fingerprint
+     */
+    public static long exclusionFingerprint(List<String> excludedRecipes, List<String> excludedRandomItems) {
+        long hash = HashUtil.INITIAL;
+        hash = hashSorted(hash, excludedRecipes);
+        hash = hashSorted(hash, excludedRandomItems);
+        return hash;
+    }
+    
+    /**
+     * Mixes a list of strings into a hash, ignoring their order
+     * @param hash the current hash
+     * @param values the strings to mix in
+     * @return the new hash
+     */
+    private static long hashSorted(long hash, List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        hash = HashUtil.hash(hash, sorted.size());
+        for (String value : sorted) {
+            hash = HashUtil.hash(hash, value);
+        }
+        return hash;
+    }
+    
+    /**
+     * Mixes a map of weights into a hash, ignoring their order
+     * @param hash the current hash
+     * @param weights the weights to mix in
+     * @return the new hash
+     */
+    private static long hashSorted(long hash, Map<String, Double> weights) {
+        List<String> keys = new ArrayList<>(weights.keySet());
+        Collections.sort(keys);
+        hash = HashUtil.hash(hash, keys.size());
+        for (String key : keys) {
+            hash = HashUtil.hash(hash, key);
+            hash = HashUtil.hash(hash, Double.doubleToLongBits(weights.get(key)));
+        }
+        return hash;
+    }
+    
+    /**
+     * Gets the fingerprint of the inputs the plan was computed from
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Gets the shuffled result of each recipe
+     * @return the results by recipe key
+     */
+    public Map<NamespacedKey, ResultDescriptor> getResults() {
+        return results;
+    }
+    
+    /**
+     * Gets the number of recipes in the plan
+     * @return the number of recipes
+     */
+    public int size() {
+        return results.size();
+    }
+}
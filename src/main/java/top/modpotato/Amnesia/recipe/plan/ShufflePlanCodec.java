@@ -0,0 +1,139 @@
+package top.modpotato.Amnesia.recipe.plan;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary encoding of shuffle plans
+ * Plain results are stored as an index into a material palette, results with item meta as serialized bytes
+ */
+public class ShufflePlanCodec {
+    private static final byte PLAIN_RESULT = 0;
+    private static final byte SERIALIZED_RESULT = 1;
+    
+    /**
+     * Writes a plan
+     * @param out the stream to write to
+     * @param plan the plan
+     * @throws IOException if the plan could not be written
+     */
+    public static void write(DataOutputStream out, ShufflePlan plan) throws IOException {
+        // Build the material palette first so entries can refer to it by index
+        Map<Material, Integer> palette = new HashMap<>();
+        List<Material> materials = new ArrayList<>();
+        for (ResultDescriptor result : plan.getResults().values()) {
+            if (!result.hasItemMeta() && !palette.containsKey(result.material())) {
+                palette.put(result.material(), materials.size());
+                materials.add(result.material());
+            }
+        }
+        
+        out.writeLong(plan.getFingerprint());
+        
+        out.writeInt(materials.size());
+        for (Material material : materials) {
+            out.writeUTF(material.name());
+        }
+        
+        out.writeInt(plan.size());
+        for (Map.Entry<NamespacedKey, ResultDescriptor> entry : plan.getResults().entrySet()) {
+            ResultDescriptor result = entry.getValue();
+            out.writeUTF(entry.getKey().toString());
+            
+            if (result.hasItemMeta()) {
+                byte[] bytes = result.stack().serializeAsBytes();
+                out.writeByte(SERIALIZED_RESULT);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else {
+                out.writeByte(PLAIN_RESULT);
+                out.writeInt(palette.get(result.material()));
+                out.writeShort(result.amount());
+            }
+        }
+    }
+    
+    /**
+     * Reads a plan
+     * @param in the stream to read from
+     * @param interner the interner to share the loaded results with the recipe descriptors
+     * @return the plan
+     * @throws IOException if the plan could not be read or refers to an unknown material
+     */
+    public static ShufflePlan read(DataInputStream in, RecipeInterner interner) throws IOException {
+        long fingerprint = in.readLong();
+        
+        Material[] materials = new Material[in.readInt()];
+        for (int i = 0; i < materials.length; i++) {
+            String name = in.readUTF();
+            materials[i] = Material.matchMaterial(name);
+            if (materials[i] == null) {
+                throw new IOException("Unknown material: " + name);
+            }
+        }
+        
+        int size = in.readInt();
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            NamespacedKey key = NamespacedKey.fromString(in.readUTF());
+            byte type = in.readByte();
+            
+            ResultDescriptor result;
+            if (type == SERIALIZED_RESULT) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                result = interner.result(ItemStack.deserializeBytes(bytes));
+            } else {
+                result = interner.result(materials[in.readInt()], in.readShort());
+            }
+            
+            if (key != null) {
+                results.put(key, result);
+            }
+        }
+        
+        return new ShufflePlan(fingerprint, results);
+    }
+    
+    /**
+     * Encodes a plan into compressed bytes
+     * @param plan the plan
+     * @return the encoded plan
+     * @throws IOException if the plan could not be encoded
+     */
+    public static byte[] encode(ShufflePlan plan) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            write(out, plan);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decodes a plan from compressed bytes
+     * @param bytes the encoded plan
+     * @param interner the interner to share the loaded results with the recipe descriptors
+     * @return the plan
+     * @throws IOException if the plan could not be decoded
+     */
+    public static ShufflePlan decode(byte[] bytes, RecipeInterner interner) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            return read(in, interner);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package top.modpotato.Amnesia.recipe.plan;
+
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists the current shuffle plan in a compact binary file next to data.yml
+ * The plan is encoded with {@link ShufflePlanCodec}
+ */
+public class ShufflePlanStore {
+    private static final int MAGIC = 0x414D4E50; // "AMNP"
+    private static final int VERSION = 1;
+    
+    private final Main plugin;
+    private final File planFile;
+    
+    /**
+     * Creates a new ShufflePlanStore
+     * @param plugin the plugin instance
+     */
+    public ShufflePlanStore(Main plugin) {
+        this.plugin = plugin;
+        this.planFile = new File(plugin.getDataFolder(), "plan.bin");
+    }
+    
+    /**
+     * Saves a plan, replacing the stored one
+     * The plan is written to a temporary file first, so a crash never leaves a truncated plan.bin behind
+     * @param plan the plan to save
+     */
+    public synchronized void save(ShufflePlan plan) {
+        Path target = planFile.toPath();
+        Path temp = target.resolveSibling(planFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 GZIPOutputStream gzip = new GZIPOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                ShufflePlanCodec.write(out, plan);
+                
+                // Write the gzip trailer and sync before the file replaces the stored plan
+                out.flush();
+                gzip.finish();
+                file.getFD().sync();
+            }
+            
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save plan.bin: " + e.getMessage());
+            
+            // Don't leave a partial plan behind, the next save starts over
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException deleteError) {
+                plugin.getLogger().warning("Could not delete " + temp.getFileName() + ": " + deleteError.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Loads the stored plan
+     * @param interner the interner to share the loaded results with the recipe descriptors
+     * @return the stored plan, or null if there is none or it could not be read
+     */
+    public synchronized ShufflePlan load(RecipeInterner interner) {
+        if (!planFile.exists()) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(planFile))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.getLogger().warning("Ignoring plan.bin with an unknown format");
+                return null;
+            }
+            return ShufflePlanCodec.read(in, interner);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not load plan.bin: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Deletes the stored plan
+     */
+    public synchronized void invalidate() {
+        if (planFile.exists() && !planFile.delete()) {
+            plugin.getLogger().warning("Could not delete plan.bin");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package top.modpotato.Amnesia.recipe.sync;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.trace.PlayerSyncEvent;
+import top.modpotato.Amnesia.util.SchedulerUtil;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Spreads client recipe syncs across ticks, at most a configured number of players per tick
+ * On Folia each player's sync runs on that player's entity scheduler
+ * Starting a new sync supersedes every player still waiting on the previous one
+ */
+public class ClientSyncScheduler {
+    private final Main plugin;
+    private final ArrayDeque<UUID> queue = new ArrayDeque<>();
+    private final Map<UUID, Long> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private Consumer<Player> action;
+    private Object task;
+    private int dispatched;
+    private int ticks;
+    
+    /**
+     * Creates a new ClientSyncScheduler
+     * @param plugin the plugin instance
+     */
+    public ClientSyncScheduler(Main plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Schedules a sync for a set of players, superseding any sync that hasn't reached them yet
+     * Must be called on the main thread
+     * @param players the players to sync
+     * @param action the sync to run for each player, on the thread that owns the player
+     */
+    public void schedule(Collection<? extends Player> players, Consumer<Player> action) {
+        int superseded = cancel();
+        if (superseded > 0) {
+            plugin.getLogger().info("Superseded pending recipe sync for " + superseded + " player(s)");
+        }
+        
+        this.action = action;
+        for (Player player : players) {
+            queue.add(player.getUniqueId());
+        }
+        
+        dispatched = 0;
+        ticks = 0;
+        if (queue.isEmpty()) {
+            return;
+        }
+        
+        // Start right away, then continue every tick until everyone was dispatched
+        tick();
+        if (!queue.isEmpty()) {
+            task = SchedulerUtil.runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+    
+    /**
+     * Cancels the current sync, players that haven't been synced yet are skipped
+     * Must be called on the main thread
+     * @return the number of players that were still waiting
+     */
+    public int cancel() {
+        generation.incrementAndGet();
+        int pending = queue.size() + inFlight.size();
+        queue.clear();
+        inFlight.clear();
+        action = null;
+        
+        SchedulerUtil.cancelTask(task);
+        task = null;
+        return pending;
+    }
+    
+    /**
+     * Checks if a player is still waiting on a sync
+     * @param player the player
+     * @return true if the player has a pending sync, false otherwise
+     */
+    public boolean isPending(Player player) {
+        return inFlight.containsKey(player.getUniqueId()) || queue.contains(player.getUniqueId());
+    }
+    
+    /**
+     * Checks if any player is still waiting on a sync
+     * @return true if a sync is still being dispatched or run, false otherwise
+     */
+    public boolean isBusy() {
+        return !queue.isEmpty() || !inFlight.isEmpty();
+    }
+    
+    /**
+     * Dispatches the next batch of players
+     */
+    private void tick() {
+        int budget = plugin.getConfigManager().getClientSyncPlayersPerTick();
+        if (budget <= 0) {
+            budget = Integer.MAX_VALUE;
+        }
+        
+        long currentGeneration = generation.get();
+        Consumer<Player> currentAction = action;
+        ticks++;
+        
+        int count = 0;
+        while (count < budget && !queue.isEmpty()) {
+            Player player = Bukkit.getPlayer(queue.poll());
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            
+            dispatch(player, currentGeneration, currentAction);
+            count++;
+        }
+        dispatched += count;
+        
+        if (queue.isEmpty()) {
+            SchedulerUtil.cancelTask(task);
+            task = null;
+            plugin.getLogger().info("Dispatched recipe sync to " + dispatched + " player(s) over " + ticks + " tick(s)");
+        }
+    }
+    
+    /**
+     * Runs the sync for one player on the thread that owns them
+     * @param player the player
+     * @param syncGeneration the generation of the sync the player belongs to
+     * @param syncAction the sync to run
+     */
+    private void dispatch(Player player, long syncGeneration, Consumer<Player> syncAction) {
+        UUID uuid = player.getUniqueId();
+        inFlight.put(uuid, syncGeneration);
+        
+        boolean scheduled = SchedulerUtil.runForEntity(plugin, player, () -> {
+            // A newer sync replaced this one before it got to run
+            if (generation.get() != syncGeneration) {
+                return;
+            }
+            
+            PlayerSyncEvent event = new PlayerSyncEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                syncAction.accept(player);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Error syncing recipes to " + player.getName() + ": " + e.getMessage());
+            } finally {
+                inFlight.remove(uuid, syncGeneration);
+                event.player = player.getName();
+                event.commit();
+                plugin.getMetrics().observeClientSync(System.nanoTime() - start);
+            }
+        });
+        
+        if (!scheduled) {
+            inFlight.remove(uuid, syncGeneration);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package top.modpotato.Amnesia.recipe.sync;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which recipes each player has been told about, so a sync only sends what changed
+ * Each player's bitset is only touched from the thread that owns the player
+ */
+public class DeltaClientSync {
+    private final RecipeKeyIndex index = new RecipeKeyIndex();
+    private final Map<UUID, BitSet> known = new ConcurrentHashMap<>();
+    
+    /**
+     * Prepares a sync towards a set of discovered recipes
+     * Must be called on the main thread, the returned action can run on any player's thread
+     * @param target the recipe keys every player should have discovered afterwards
+     * @return the sync to run for each player
+     */
+    public Consumer<Player> prepare(Collection<NamespacedKey> target) {
+        BitSet targetBits = index.toBitSet(target);
+        return player -> sync(player, targetBits);
+    }
+    
+    /**
+     * Forgets what a player has been told, such as when they quit
+     * @param player the player
+     */
+    public void forget(Player player) {
+        known.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Forgets what every player has been told
+     * Used when another sync mode takes over, as the bitsets no longer match the clients
+     */
+    public void reset() {
+        known.clear();
+    }
+    
+    /**
+     * Sends a player only the recipes that were added or removed since their last sync
+     * @param player the player
+     * @param target the recipes the player should have discovered afterwards
+     */
+    private void sync(Player player, BitSet target) {
+        BitSet playerKnown = known.computeIfAbsent(player.getUniqueId(), uuid -> new BitSet());
+        
+        BitSet added = (BitSet) target.clone();
+        added.andNot(playerKnown);
+        BitSet removed = (BitSet) playerKnown.clone();
+        removed.andNot(target);
+        
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        
+        player.updateCommands();
+        if (!removed.isEmpty()) {
+            player.undiscoverRecipes(toKeys(removed));
+            playerKnown.andNot(removed);
+        }
+        if (!added.isEmpty()) {
+            player.discoverRecipes(toKeys(added));
+            playerKnown.or(added);
+        }
+    }
+    
+    /**
+     * Converts a bitset back into recipe keys
+     * @param bits the bitset
+     * @return the recipe keys
+     */
+    private List<NamespacedKey> toKeys(BitSet bits) {
+        List<NamespacedKey> keys = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            keys.add(index.keyAt(i));
+        }
+        return keys;
+    }
+}
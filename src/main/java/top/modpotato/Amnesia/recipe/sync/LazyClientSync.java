@@ -0,0 +1,77 @@
+package top.modpotato.Amnesia.recipe.sync;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defers client recipe syncs until a player actually needs their recipe book
+ * Players are marked dirty on shuffle and on join, and synced the first time they open a crafting-type
+ * inventory or their recipe book
+ */
+public class LazyClientSync {
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private volatile List<NamespacedKey> keys = Collections.emptyList();
+    
+    /**
+     * Sets the recipes dirty players are synced with and marks players dirty
+     * Must be called on the main thread
+     * @param recipeKeys the recipe keys every player should have discovered
+     * @param players the players to mark dirty
+     */
+    public void update(Collection<NamespacedKey> recipeKeys, Collection<? extends Player> players) {
+        keys = List.copyOf(recipeKeys);
+        for (Player player : players) {
+            dirty.add(player.getUniqueId());
+        }
+    }
+    
+    /**
+     * Marks a player dirty, such as when they join
+     * @param player the player
+     */
+    public void markDirty(Player player) {
+        dirty.add(player.getUniqueId());
+    }
+    
+    /**
+     * Syncs a player if they are dirty
+     * Must be called on the thread that owns the player
+     * @param player the player
+     * @return true if the player was synced, false if they were already up to date
+     */
+    public boolean syncIfDirty(Player player) {
+        // Keep the player dirty until the shuffle they are waiting for is applied
+        List<NamespacedKey> recipeKeys = keys;
+        if (recipeKeys.isEmpty() || !dirty.remove(player.getUniqueId())) {
+            return false;
+        }
+        
+        player.updateCommands();
+        player.discoverRecipes(recipeKeys);
+        return true;
+    }
+    
+    /**
+     * Forgets a player, such as when they quit
+     * @param player the player
+     */
+    public void forget(Player player) {
+        dirty.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Forgets every player and the recipes to sync
+     * Used when another sync mode takes over
+     */
+    public void reset() {
+        dirty.clear();
+        keys = Collections.emptyList();
+    }
+}
@@ -0,0 +1,62 @@
+package top.modpotato.Amnesia.recipe.sync;
+
+import org.bukkit.NamespacedKey;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives every recipe key a dense, stable index so sets of keys can be kept as bitsets
+ * Indexes are only ever added, so bitsets built earlier stay valid when new keys show up
+ */
+public class RecipeKeyIndex {
+    private final Map<NamespacedKey, Integer> indexes = new HashMap<>();
+    private volatile NamespacedKey[] keys = new NamespacedKey[256];
+    private int size;
+    
+    /**
+     * Gets the index of a key, assigning the next free one if the key is new
+     * @param key the recipe key
+     * @return the index
+     */
+    public synchronized int indexOf(NamespacedKey key) {
+        Integer index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        
+        NamespacedKey[] current = keys;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = key;
+        keys = current;
+        indexes.put(key, size);
+        return size++;
+    }
+    
+    /**
+     * Gets the key at an index
+     * @param index an index returned by indexOf
+     * @return the recipe key
+     */
+    public NamespacedKey keyAt(int index) {
+        return keys[index];
+    }
+    
+    /**
+     * Builds a bitset of a set of keys, assigning indexes to new keys
+     * @param recipeKeys the recipe keys
+     * @return the bitset
+     */
+    public BitSet toBitSet(Collection<NamespacedKey> recipeKeys) {
+        BitSet bits = new BitSet();
+        for (NamespacedKey key : recipeKeys) {
+            bits.set(indexOf(key));
+        }
+        return bits;
+    }
+}
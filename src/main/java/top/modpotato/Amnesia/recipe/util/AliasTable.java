@@ -0,0 +1,119 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * A Walker/Vose alias table for sampling weighted int outcomes in constant time
+ * Outcomes with a weight of zero or less are left out of the table
+ */
+public class AliasTable {
+    private final int[] outcomes;
+    private final double[] probability;
+    private final int[] alias;
+    
+    private AliasTable(int[] outcomes, double[] probability, int[] alias) {
+        this.outcomes = outcomes;
+        this.probability = probability;
+        this.alias = alias;
+    }
+    
+    /**
+     * Builds an alias table using Vose's method
+     * @param outcomes the outcomes
+     * @param weights the weight of each outcome
+     * @return the alias table
+     */
+    public static AliasTable build(int[] outcomes, double[] weights) {
+        if (outcomes.length != weights.length) {
+            throw new IllegalArgumentException("Expected " + outcomes.length + " weights, got " + weights.length);
+        }
+        
+        // Drop outcomes that can never be picked
+        int size = 0;
+        double total = 0;
+        int[] kept = new int[outcomes.length];
+        double[] keptWeights = new double[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            if (weights[i] > 0 && Double.isFinite(weights[i])) {
+                kept[size] = outcomes[i];
+                keptWeights[size] = weights[i];
+                total += weights[i];
+                size++;
+            }
+        }
+        
+        int[] tableOutcomes = new int[size];
+        double[] probability = new double[size];
+        int[] alias = new int[size];
+        System.arraycopy(kept, 0, tableOutcomes, 0, size);
+        
+        // Scale weights so the average is 1, then pair each small column with a large one
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = keptWeights[i] * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        
+        // Whatever is left is full up to rounding errors
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        
+        return new AliasTable(tableOutcomes, probability, alias);
+    }
+    
+    /**
+     * Picks a weighted random outcome
+     * @param random the random stream to draw from
+     * @return the outcome
+     */
+    public int sample(SplittableRandom random) {
+        int column = random.nextInt(outcomes.length);
+        return outcomes[random.nextDouble() < probability[column] ? column : alias[column]];
+    }
+    
+    /**
+     * Gets the number of outcomes that can be picked
+     * @return the number of outcomes
+     */
+    public int size() {
+        return outcomes.length;
+    }
+    
+    /**
+     * Checks if the table is empty
+     * @return true if no outcome can be picked, false otherwise
+     */
+    public boolean isEmpty() {
+        return outcomes.length == 0;
+    }
+}
@@ -0,0 +1,58 @@
+package top.modpotato.Amnesia.recipe.util;
+
+/**
+ * Utility class for stable 64-bit hashing
+ * Unlike Object.hashCode the results are identical across restarts and JVMs
+ */
+public class HashUtil {
+    /**
+     * The initial value for a hash (FNV-1a 64-bit offset basis)
+     */
+    public static final long INITIAL = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    
+    /**
+     * Mixes a string into a hash
+     * @param hash the current hash
+     * @param value the string to mix in, may be null
+     * @return the new hash
+     */
+    public static long hash(long hash, String value) {
+        if (value == null) {
+            return hash(hash, -1L);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        // Terminate the string so adjacent strings can't run into each other
+        return (hash ^ 0xffff) * PRIME;
+    }
+    
+    /**
+     * Mixes a long into a hash
+     * @param hash the current hash
+     * @param value the long to mix in
+     * @return the new hash
+     */
+    public static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+    
+    /**
+     * Mixes a byte array into a hash
+     * @param hash the current hash
+     * @param value the bytes to mix in
+     * @return the new hash
+     */
+    public static long hash(long hash, byte[] value) {
+        hash = hash(hash, value.length);
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,32 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.bukkit.NamespacedKey;
+
+import java.util.SplittableRandom;
+
+/**
+ * Utility class for deriving independent random streams per recipe
+ * Each stream only depends on the seed and the recipe key, so results don't depend on iteration order or threads
+ */
+public class KeyedRandom {
+    
+    /**
+     * Creates the random stream of a recipe
+     * @param seed the shuffle seed
+     * @param key the recipe key
+     * @return a random stream unique to the seed and key
+     */
+    public static SplittableRandom forKey(long seed, NamespacedKey key) {
+        return new SplittableRandom(mix(seed, key));
+    }
+    
+    /**
+     * Mixes a seed and a recipe key into a stable 64-bit value
+     * @param seed the shuffle seed
+     * @param key the recipe key
+     * @return the mixed value
+     */
+    public static long mix(long seed, NamespacedKey key) {
+        return HashUtil.hash(HashUtil.hash(HashUtil.INITIAL, seed), key.toString());
+    }
+}
@@ -1,29 +1,46 @@
 package top.modpotato.Amnesia.recipe.util;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.inventory.ItemRarity;
+import org.bukkit.inventory.ItemType;
 import top.modpotato.Amnesia.Main;
+import top.modpotato.Amnesia.config.RandomItemWeights;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 /**
  * Utility class for caching materials
+ * The random item pool and weighted item table are compiled only when their config changes and published
+ * as immutable snapshots, so they can be read from any thread without locking
  */
 public class MaterialCache {
+    private static final Material[] MATERIALS = Material.values();
     private static List<Material> allMaterials;
     private static List<Material> itemMaterials;
+    private static volatile RandomItemPool randomItemPool;
+    private static volatile boolean randomItemPoolStale;
+    private static volatile WeightedItemTable weightedItemTable;
     
     /**
      * Gets all materials
      * @return a list of all materials
      */
-    public static List<Material> getAllMaterials() {
+    public static synchronized List<Material> getAllMaterials() {
         if (allMaterials == null) {
-            allMaterials = new ArrayList<>();
-            for (Material material : Material.values()) {
-                allMaterials.add(material);
-            }
+            List<Material> materials = new ArrayList<>(MATERIALS.length);
+            Collections.addAll(materials, MATERIALS);
+            allMaterials = Collections.unmodifiableList(materials);
         }
         return allMaterials;
     }
@@ -32,14 +49,15 @@ public class MaterialCache {
      * Gets all item materials
      * @return a list of all item materials
      */
-    public static List<Material> getItemMaterials() {
+    public static synchronized List<Material> getItemMaterials() {
         if (itemMaterials == null) {
-            itemMaterials = new ArrayList<>();
-            for (Material material : Material.values()) {
+            List<Material> materials = new ArrayList<>();
+            for (Material material : MATERIALS) {
                 if (material.isItem()) {
-                    itemMaterials.add(material);
+                    materials.add(material);
                 }
             }
+            itemMaterials = Collections.unmodifiableList(materials);
         }
         return itemMaterials;
     }
@@ -66,8 +84,7 @@ public class MaterialCache {
      * @return true if the material is excluded, false otherwise
      */
     public static boolean isExcludedRandomItem(Main plugin, Material material) {
-        List<String> excludedItems = plugin.getConfigManager().getExcludedRandomItems();
-        return excludedItems.contains("minecraft:" + material.name().toLowerCase());
+        return getRandomItemPool(plugin).isExcluded(material);
     }
     
     /**
@@ -76,6 +93,231 @@ public class MaterialCache {
      * @return a list of all item materials that are not excluded
      */
     public static List<Material> getAvailableRandomItemMaterials(Main plugin) {
-        return getItemMaterials(material -> !isExcludedRandomItem(plugin, material));
+        return getRandomItemPool(plugin).toList();
+    }
+    
+    /**
+     * Gets the compiled pool of item materials that are not excluded from random item selection
+     * @param plugin the plugin instance
+     * @return the random item pool for the current config
+     */
+    public static RandomItemPool getRandomItemPool(Main plugin) {
+        RandomItemPool pool = randomItemPool;
+        if (pool != null && !randomItemPoolStale) {
+            return pool;
+        }
+        
+        synchronized (MaterialCache.class) {
+            // Keep the previous pool if the exclusions didn't change
+            List<String> excludedItems = plugin.getConfigManager().getExcludedRandomItems();
+            if (randomItemPool == null || !randomItemPool.excludedItems.equals(excludedItems)) {
+                randomItemPool = RandomItemPool.compile(excludedItems);
+            }
+            randomItemPoolStale = false;
+            return randomItemPool;
+        }
+    }
+    
+    /**
+     * Gets the alias table for weighted random item selection over the random item pool
+     * The table is only rebuilt when the pool or the configured weights change
+     * @param plugin the plugin instance
+     * @return the weighted item table, sampling material ordinals
+     */
+    public static AliasTable getWeightedItemTable(Main plugin) {
+        RandomItemPool pool = getRandomItemPool(plugin);
+        RandomItemWeights weights = plugin.getConfigManager().getRandomItemWeights();
+        WeightedItemTable table = weightedItemTable;
+        if (table != null && table.pool() == pool && table.weights().equals(weights)) {
+            return table.table();
+        }
+        
+        synchronized (MaterialCache.class) {
+            table = weightedItemTable;
+            if (table == null || table.pool() != pool || !table.weights().equals(weights)) {
+                table = new WeightedItemTable(pool, weights, buildWeightedItemTable(plugin, pool, weights));
+                weightedItemTable = table;
+            }
+            return table.table();
+        }
+    }
+    
+    /**
+     * Marks the compiled random item pool as stale, it is checked against the config again on next use
+     */
+    public static void invalidate() {
+        randomItemPoolStale = true;
+    }
+    
+    /**
+     * Builds the alias table for a pool from the configured weights
+     * @param plugin the plugin instance
+     * @param pool the random item pool
+     * @param weights the configured weights
+     * @return the alias table
+     */
+    private static AliasTable buildWeightedItemTable(Main plugin, RandomItemPool pool, RandomItemWeights weights) {
+        // Resolve the configured tags once
+        Map<Tag<Material>, Double> tags = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : weights.tags().entrySet()) {
+            String tagKey = entry.getKey().startsWith("#") ? entry.getKey().substring(1) : entry.getKey();
+            NamespacedKey key = NamespacedKey.fromString(tagKey);
+            Tag<Material> tag = key != null ? Bukkit.getTag(Tag.REGISTRY_ITEMS, key, Material.class) : null;
+            if (tag == null) {
+                plugin.getLogger().warning("Unknown item tag in random-item-weights: " + entry.getKey());
+            } else {
+                tags.put(tag, entry.getValue());
+            }
+        }
+        
+        int[] ordinals = new int[pool.size()];
+        double[] itemWeights = new double[pool.size()];
+        for (int i = 0; i < pool.size(); i++) {
+            Material material = pool.get(i);
+            ordinals[i] = pool.ordinal(i);
+            itemWeights[i] = weightOf(material, weights, tags);
+        }
+        
+        AliasTable table = AliasTable.build(ordinals, itemWeights);
+        plugin.getLogger().info("Built weighted item table with " + table.size() + " items");
+        return table;
+    }
+    
+    /**
+     * Gets the configured weight of a material
+     * @param material the material
+     * @param weights the configured weights
+     * @param tags the resolved tag weights
+     * @return the weight
+     */
+    private static double weightOf(Material material, RandomItemWeights weights, Map<Tag<Material>, Double> tags) {
+        Double weight = weights.items().get("minecraft:" + material.name().toLowerCase());
+        if (weight != null) {
+            return weight;
+        }
+        
+        // Use the highest weight of the tags the item is in
+        for (Map.Entry<Tag<Material>, Double> entry : tags.entrySet()) {
+            if (entry.getKey().isTagged(material) && (weight == null || entry.getValue() > weight)) {
+                weight = entry.getValue();
+            }
+        }
+        if (weight != null) {
+            return weight;
+        }
+        
+        ItemType itemType = material.asItemType();
+        ItemRarity rarity = itemType != null ? itemType.getItemRarity() : null;
+        if (rarity != null) {
+            weight = weights.rarities().get(rarity.name().toLowerCase());
+            if (weight != null) {
+                return weight;
+            }
+        }
+        
+        return weights.defaultWeight();
+    }
+    
+    /**
+     * The item materials available for random item selection, compiled from the excluded items
+     */
+    public static final class RandomItemPool {
+        private final List<String> excludedItems;
+        private final EnumSet<Material> excluded;
+        private final int[] ordinals;
+        
+        private RandomItemPool(List<String> excludedItems, EnumSet<Material> excluded, int[] ordinals) {
+            this.excludedItems = excludedItems;
+            this.excluded = excluded;
+            this.ordinals = ordinals;
+        }
+        
+        /**
+         * Compiles the pool from the excluded items in the config
+         * @param excludedItems the excluded item keys, such as minecraft:bedrock
+         * @return the compiled pool
+         */
+        public static RandomItemPool compile(List<String> excludedItems) {
+            Set<String> excludedKeys = new HashSet<>(excludedItems);
+            EnumSet<Material> excluded = EnumSet.noneOf(Material.class);
+            int[] ordinals = new int[MATERIALS.length];
+            int size = 0;
+            
+            for (Material material : MATERIALS) {
+                if (excludedKeys.contains("minecraft:" + material.name().toLowerCase())) {
+                    excluded.add(material);
+                } else if (material.isItem()) {
+                    ordinals[size++] = material.ordinal();
+                }
+            }
+            
+            int[] pool = new int[size];
+            System.arraycopy(ordinals, 0, pool, 0, size);
+            return new RandomItemPool(new ArrayList<>(excludedItems), excluded, pool);
+        }
+        
+        /**
+         * Gets the number of materials in the pool
+         * @return the number of materials
+         */
+        public int size() {
+            return ordinals.length;
+        }
+        
+        /**
+         * Checks if the pool is empty
+         * @return true if every item is excluded, false otherwise
+         */
+        public boolean isEmpty() {
+            return ordinals.length == 0;
+        }
+        
+        /**
+         * Gets a material from the pool
+         * @param index the index, between 0 and size() - 1
+         * @return the material
+         */
+        public Material get(int index) {
+            return MATERIALS[ordinals[index]];
+        }
+        
+        /**
+         * Gets the ordinal of a material in the pool
+         * @param index the index, between 0 and size() - 1
+         * @return the material ordinal
+         */
+        public int ordinal(int index) {
+            return ordinals[index];
+        }
+        
+        /**
+         * Checks if a material is excluded from the pool
+         * @param material the material to check
+         * @return true if the material is excluded, false otherwise
+         */
+        public boolean isExcluded(Material material) {
+            return excluded.contains(material);
+        }
+        
+        /**
+         * Copies the pool into a list
+         * @return a new list of the materials in the pool
+         */
+        public List<Material> toList() {
+            List<Material> materials = new ArrayList<>(ordinals.length);
+            for (int ordinal : ordinals) {
+                materials.add(MATERIALS[ordinal]);
+            }
+            return materials;
+        }
+    }
+    
+    /**
+     * A weighted item table together with the pool and weights it was built from
+     * @param pool the random item pool
+     * @param weights the configured weights
+     * @param table the alias table
+     */
+    private record WeightedItemTable(RandomItemPool pool, RandomItemWeights weights, AliasTable table) {
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Recipe;
+
+/**
+ * Utility class for mutating the server recipe registry
+ * Uses the non-resending recipe overloads where the server provides them
+ */
+public class RecipeRegistryUtil {
+    private static final boolean BULK_SUPPORTED = checkBulkSupport();
+    private static boolean bulkPending = false;
+    
+    /**
+     * Checks if the server can add and remove recipes without resending them to clients
+     * @return true if bulk registration is supported, false otherwise
+     */
+    public static boolean isBulkSupported() {
+        return BULK_SUPPORTED;
+    }
+    
+    /**
+     * Removes a recipe from the server
+     * @param key the recipe key
+     * @param bulk whether to skip resending recipes to clients, if supported
+     */
+    public static void removeRecipe(NamespacedKey key, boolean bulk) {
+        if (bulk && BULK_SUPPORTED) {
+            Bukkit.removeRecipe(key, false);
+            bulkPending = true;
+        } else {
+            Bukkit.removeRecipe(key);
+        }
+    }
+    
+    /**
+     * Adds a recipe to the server
+     * @param recipe the recipe
+     * @param bulk whether to skip resending recipes to clients, if supported
+     */
+    public static void addRecipe(Recipe recipe, boolean bulk) {
+        if (bulk && BULK_SUPPORTED) {
+            Bukkit.addRecipe(recipe, false);
+            bulkPending = true;
+        } else {
+            Bukkit.addRecipe(recipe);
+        }
+    }
+    
+    /**
+     * Sends one recipe update to all clients if any bulk change has not been sent yet
+     * Pending changes are tracked across passes, so changes left by a cancelled pass are sent by the next flush
+     */
+    public static void finishBulk() {
+        if (bulkPending) {
+            bulkPending = false;
+            Bukkit.updateRecipes();
+        }
+    }
+    
+    /**
+     * Checks for the non-resending recipe overloads
+     * @return true if they are all present, false otherwise
+     */
+    private static boolean checkBulkSupport() {
+        try {
+            Bukkit.class.getMethod("removeRecipe", NamespacedKey.class, boolean.class);
+            Bukkit.class.getMethod("addRecipe", Recipe.class, boolean.class);
+            Bukkit.class.getMethod("updateRecipes");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
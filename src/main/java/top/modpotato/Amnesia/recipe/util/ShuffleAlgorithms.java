@@ -0,0 +1,97 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * The shuffle algorithms of each mode, free of any plugin state so they can be benchmarked on their own
+ * Recipes are prepared in parallel, each one drawing from its own random stream, so results only depend on the seed
+ */
+public class ShuffleAlgorithms {
+    private static final long INDEX_MASK = (1L << 24) - 1;
+    private static final Material[] MATERIALS = Material.values();
+    
+    /**
+     * Gives each recipe a random item from a pool
+     * @param seed the seed
+     * @param keys the keys of the recipes to shuffle
+     * @param pool the items to pick from, must not be empty
+     * @param interner the interner to share results with
+     * @return the shuffled result of each recipe
+     */
+    public static Map<NamespacedKey, ResultDescriptor> randomItems(long seed, Collection<NamespacedKey> keys,
+                                                                   MaterialCache.RandomItemPool pool,
+                                                                   RecipeInterner interner) {
+        Map<NamespacedKey, ResultDescriptor> prepared = new ConcurrentHashMap<>();
+        keys.parallelStream().forEach(key -> {
+            // Get a random material
+            SplittableRandom random = KeyedRandom.forKey(seed, key);
+            Material randomMaterial = pool.get(random.nextInt(pool.size()));
+            
+            // Store the shuffled result
+            prepared.put(key, interner.result(randomMaterial, 1));
+        });
+        return prepared;
+    }
+    
+    /**
+     * Gives each recipe an item drawn from an alias table of weighted items
+     * Each pick takes constant time regardless of the number of weights
+     * @param seed the seed
+     * @param keys the keys of the recipes to shuffle
+     * @param table the weighted items to draw from, by material ordinal, must not be empty
+     * @param interner the interner to share results with
+     * @return the shuffled result of each recipe
+     */
+    public static Map<NamespacedKey, ResultDescriptor> weightedItems(long seed, Collection<NamespacedKey> keys,
+                                                                     AliasTable table, RecipeInterner interner) {
+        Map<NamespacedKey, ResultDescriptor> prepared = new ConcurrentHashMap<>();
+        keys.parallelStream().forEach(key -> {
+            SplittableRandom random = KeyedRandom.forKey(seed, key);
+            prepared.put(key, interner.result(MATERIALS[table.sample(random)], 1));
+        });
+        return prepared;
+    }
+    
+    /**
+     * Swaps results between recipes
+     * The permutation orders recipes by a random priority drawn from each recipe's own stream,
+     * so the result only depends on the seed and the set of recipes
+     * @param seed the seed
+     * @param recipeKeys the keys of the recipes to shuffle amongst each other
+     * @param recipes the descriptors of the recipes, by key
+     * @return the shuffled result of each recipe
+     */
+    public static Map<NamespacedKey, ResultDescriptor> recipeResults(long seed, Collection<NamespacedKey> recipeKeys,
+                                                                     Map<NamespacedKey, RecipeDescriptor> recipes) {
+        // Put recipes in key order so the map's iteration order doesn't matter
+        NamespacedKey[] keys = recipeKeys.toArray(new NamespacedKey[0]);
+        Arrays.parallelSort(keys, Comparator.comparing(NamespacedKey::toString));
+        
+        // Sort recipes by priority, the low bits hold the recipe's index to break ties and recover it afterwards
+        long[] order = new long[keys.length];
+        IntStream.range(0, keys.length).parallel().forEach(i -> {
+            long priority = KeyedRandom.forKey(seed, keys[i]).nextLong();
+            order[i] = (priority & ~INDEX_MASK) | i;
+        });
+        Arrays.parallelSort(order);
+        
+        // Give each recipe the result of the recipe at its position in the shuffled order
+        Map<NamespacedKey, ResultDescriptor> prepared = new ConcurrentHashMap<>();
+        IntStream.range(0, keys.length).parallel().forEach(i -> {
+            prepared.put(keys[i], recipes.get(keys[(int) (order[i] & INDEX_MASK)]).result());
+        });
+        return prepared;
+    }
+}
@@ -1,21 +1,27 @@
 package top.modpotato.Amnesia.timer;
 
-import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitTask;
+import net.kyori.adventure.text.Component;
 import top.modpotato.Amnesia.Main;
 import top.modpotato.Amnesia.util.MessageUtil;
-
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import top.modpotato.Amnesia.util.SchedulerUtil;
 
 /**
  * Manages the timer for automatic recipe reshuffling
+ * The timer counts down to a wall-clock deadline kept in data.yml, so a restart resumes the remaining time
+ * Only one delayed task is scheduled at a time, for the next notification point or the deadline itself,
+ * so nothing runs between notifications
  */
 public class TimerManager {
+    private static final long TICK_MILLIS = 50;
+    private static final long LATE_TOLERANCE_MILLIS = 1000;
+    
     private final Main plugin;
-    private Object timerTask; // Can be BukkitTask or Folia's ScheduledTask
-    private Object countdownTask; // Can be BukkitTask or Folia's ScheduledTask
-    private boolean isRunning = false;
+    private Object nextTask; // Can be BukkitTask or Folia's ScheduledTask
+    private int[] notificationPoints = new int[0]; // Seconds before the deadline, ascending
+    private int nextPoint;
+    private volatile long deadline;
+    private boolean countdownStarted;
+    private volatile boolean isRunning = false;
     
     /**
      * Creates a new TimerManager
@@ -27,6 +33,7 @@ public class TimerManager {
     
     /**
      * Starts the timer
+     * Resumes the deadline stored before a restart, as long as it is no more than one interval away
      */
     public void startTimer() {
         if (isRunning) {
@@ -34,124 +41,201 @@ public class TimerManager {
         }
         
         int interval = plugin.getConfigManager().getTimerInterval();
+        notificationPoints = plugin.getConfigManager().getNotificationIntervals().stream()
+                .mapToInt(Integer::intValue)
+                .filter(seconds -> seconds >= 0)
+                .distinct()
+                .sorted()
+                .toArray();
         
-        // Schedule the timer task
-        if (Main.isFolia()) {
-            // Use Folia's region scheduler for global tasks
-            timerTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, task -> {
-                shuffleRecipes();
-            }, 0, interval * 20L); // Convert seconds to ticks
+        long now = System.currentTimeMillis();
+        long storedDeadline = plugin.getDataManager().getNextShuffleTime();
+        if (storedDeadline > now) {
+            deadline = Math.min(storedDeadline, now + interval * 1000L);
+            plugin.getLogger().info("Resuming timer, recipes shuffle in " + (deadline - now) / 1000 + " seconds");
+        } else if (storedDeadline > 0) {
+            // The deadline passed while the server was down, give players the full countdown
+            deadline = now + getCountdownSeconds() * 1000L;
+            plugin.getLogger().info("Timer deadline passed while the server was down, shuffling after the countdown");
         } else {
-            // Use Bukkit scheduler
-            timerTask = Bukkit.getScheduler().runTaskTimer(plugin, this::shuffleRecipes, 0, interval * 20L);
+            deadline = now + interval * 1000L;
         }
+        saveDeadline();
         
         isRunning = true;
+        startCycle();
         plugin.getLogger().info("Timer started with interval of " + interval + " seconds");
     }
     
     /**
-     * Stops the timer
+     * Stops the timer and forgets its deadline
      */
     public void stopTimer() {
         if (!isRunning) {
             return;
         }
         
-        // Cancel the timer task
-        if (timerTask != null) {
-            if (timerTask instanceof BukkitTask) {
-                ((BukkitTask) timerTask).cancel();
-            } else {
-                // For Folia, we need to call cancel() on the ScheduledTask
-                try {
-                    timerTask.getClass().getMethod("cancel").invoke(timerTask);
-                } catch (Exception e) {
-                    plugin.getLogger().severe("Failed to cancel timer task: " + e.getMessage());
-                }
-            }
-            timerTask = null;
-        }
+        cancel();
         
-        // Cancel the countdown task if running
-        if (countdownTask != null) {
-            if (countdownTask instanceof BukkitTask) {
-                ((BukkitTask) countdownTask).cancel();
-            } else {
-                // For Folia, we need to call cancel() on the ScheduledTask
-                try {
-                    countdownTask.getClass().getMethod("cancel").invoke(countdownTask);
-                } catch (Exception e) {
-                    plugin.getLogger().severe("Failed to cancel countdown task: " + e.getMessage());
-                }
-            }
-            countdownTask = null;
-        }
-        
-        isRunning = false;
+        // A timer started later counts a full interval again
+        deadline = 0;
+        saveDeadline();
         plugin.getLogger().info("Timer stopped");
     }
     
+    /**
+     * Stops the timer but keeps its deadline, so it resumes after a restart
+     * Should be called when the plugin is disabled
+     */
+    public void shutdown() {
+        if (isRunning) {
+            cancel();
+        }
+    }
+    
     /**
      * Restarts the timer with a new interval
+     * The current deadline is kept unless it is further away than the new interval
      * @param interval the new interval in seconds
      */
     public void restartTimer(int interval) {
-        stopTimer();
+        if (isRunning) {
+            cancel();
+        }
         plugin.getConfigManager().setTimerInterval(interval);
         startTimer();
     }
     
     /**
-     * Shuffles recipes and starts a new timer
+     * Cancels the pending task and marks the timer as stopped
      */
-    private void shuffleRecipes() {
-        // Start countdown
-        startCountdown();
+    private void cancel() {
+        SchedulerUtil.cancelTask(nextTask);
+        nextTask = null;
+        
+        // No shuffle is due anymore
+        plugin.getRecipeManager().discardPreparedShuffle();
+        
+        isRunning = false;
+    }
+    
+    /**
+     * Starts counting down to the current deadline
+     */
+    private void startCycle() {
+        nextPoint = notificationPoints.length - 1;
+        countdownStarted = false;
+        startCountdownIfDue(System.currentTimeMillis());
+        scheduleNext();
     }
     
     /**
-     * Starts the countdown before shuffling recipes
+     * Schedules a task for the next notification point, or for the deadline once every point has passed
      */
-    private void startCountdown() {
-        List<Integer> intervals = plugin.getConfigManager().getNotificationIntervals();
-        AtomicInteger secondsLeft = new AtomicInteger(intervals.get(0));
+    private void scheduleNext() {
+        long now = System.currentTimeMillis();
         
-        if (Main.isFolia()) {
-            // Use Folia's region scheduler for global tasks
-            countdownTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, task -> {
-                int seconds = secondsLeft.getAndDecrement();
-                
-                if (intervals.contains(seconds)) {
-                    sendCountdownMessage(seconds);
-                }
-                
-                if (seconds <= 0) {
-                    task.cancel();
-                    countdownTask = null;
-                    
-                    // Shuffle recipes - RecipeManager will handle thread safety
-                    plugin.getRecipeManager().shuffleRecipes();
-                }
-            }, 0, 20L); // Run every second
-        } else {
-            // Use Bukkit scheduler
-            countdownTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-                int seconds = secondsLeft.getAndDecrement();
-                
-                if (intervals.contains(seconds)) {
-                    sendCountdownMessage(seconds);
-                }
-                
-                if (seconds <= 0) {
-                    ((BukkitTask) countdownTask).cancel();
-                    countdownTask = null;
-                    
-                    // Shuffle recipes - RecipeManager will handle thread safety
-                    plugin.getRecipeManager().shuffleRecipes();
-                }
-            }, 0, 20L); // Run every second
+        // Skip points that passed while the server was down or lagging, their message would be wrong
+        while (nextPoint >= 0 && getPointTime(nextPoint) < now - LATE_TOLERANCE_MILLIS) {
+            nextPoint--;
+        }
+        
+        long fireAt = nextPoint >= 0 ? getPointTime(nextPoint) : deadline;
+        long delay = Math.max(1, (fireAt - now + TICK_MILLIS - 1) / TICK_MILLIS);
+        nextTask = SchedulerUtil.runTaskLater(plugin, this::onTimerTask, delay);
+    }
+    
+    /**
+     * Runs when a notification point or the deadline is reached
+     */
+    private void onTimerTask() {
+        nextTask = null;
+        if (!isRunning) {
+            return;
+        }
+        
+        // Ticks are only roughly 50ms, wait out the rest of the wall-clock time rather than firing early
+        long now = System.currentTimeMillis();
+        long fireAt = nextPoint >= 0 ? getPointTime(nextPoint) : deadline;
+        if (fireAt - now >= TICK_MILLIS) {
+            scheduleNext();
+            return;
         }
+        
+        startCountdownIfDue(now);
+        
+        if (nextPoint >= 0) {
+            int seconds = notificationPoints[nextPoint--];
+            sendCountdownMessage(seconds);
+            
+            // A point at zero is the deadline itself
+            if (seconds > 0) {
+                scheduleNext();
+                return;
+            }
+        }
+        
+        // Shuffle recipes - RecipeManager will handle thread safety
+        plugin.getRecipeManager().shuffleRecipes();
+        
+        // Count down to the next deadline, starting over from now if the server fell too far behind
+        long intervalMillis = plugin.getConfigManager().getTimerInterval() * 1000L;
+        deadline += intervalMillis;
+        if (deadline <= now + getCountdownSeconds() * 1000L) {
+            deadline = now + intervalMillis;
+        }
+        saveDeadline();
+        startCycle();
+    }
+    
+    /**
+     * Prepares the next shuffle once the countdown to it has started
+     * @param now the current time in milliseconds since epoch
+     */
+    private void startCountdownIfDue(long now) {
+        if (countdownStarted || now + TICK_MILLIS < deadline - getCountdownSeconds() * 1000L) {
+            return;
+        }
+        
+        // Prepare the shuffle while counting down, so only the apply step is left at zero
+        countdownStarted = true;
+        SchedulerUtil.runTask(plugin, () -> plugin.getRecipeManager().prepareNextShuffle());
+    }
+    
+    /**
+     * Gets the time of a notification point
+     * @param index the index of the point
+     * @return the time in milliseconds since epoch
+     */
+    private long getPointTime(int index) {
+        return deadline - notificationPoints[index] * 1000L;
+    }
+    
+    /**
+     * Gets the length of the countdown before each shuffle
+     * @return the largest notification point in seconds, or 0 if there are none
+     */
+    private int getCountdownSeconds() {
+        return notificationPoints.length == 0 ? 0 : notificationPoints[notificationPoints.length - 1];
+    }
+    
+    /**
+     * Stores the deadline so a restart can resume it
+     */
+    private void saveDeadline() {
+        plugin.getDataManager().setNextShuffleTime(deadline);
+        plugin.getDataManager().saveData();
+    }
+    
+    /**
+     * Gets the time left until the timer shuffles recipes
+     * @return the seconds until the next shuffle, or -1 if the timer is not running
+     */
+    public long getSecondsUntilShuffle() {
+        if (!isRunning) {
+            return -1;
+        }
+        return Math.max(0, (deadline - System.currentTimeMillis()) / 1000);
     }
     
     /**
@@ -159,24 +243,10 @@ public class TimerManager {
      * @param seconds the remaining time in seconds
      */
     private void sendCountdownMessage(int seconds) {
-        String message;
-        
-        if (seconds == 300) { // 5 minutes
-            message = plugin.getConfigManager().getNotificationMessages().countdownFiveMinutes;
-        } else if (seconds == 60) { // 1 minute
-            message = plugin.getConfigManager().getNotificationMessages().countdownOneMinute;
-        } else if (seconds == 30) { // 30 seconds
-            message = plugin.getConfigManager().getNotificationMessages().countdownThirtySeconds;
-        } else if (seconds <= 10) { // 10 seconds or less
-            message = MessageUtil.replacePlaceholders(
-                    plugin.getConfigManager().getNotificationMessages().countdownTenSeconds,
-                    "seconds", String.valueOf(seconds)
-            );
-        } else {
-            return; // No message for this interval
+        Component message = plugin.getConfigManager().getCompiledMessages().getCountdown(seconds);
+        if (message != null) {
+            MessageUtil.broadcast(message);
         }
-        
-        MessageUtil.broadcastMessage(message);
     }
     
     /**
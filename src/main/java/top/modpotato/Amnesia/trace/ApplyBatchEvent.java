@@ -0,0 +1,43 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one tick's batch of server recipe changes
+ */
+@Name("top.modpotato.amnesia.ApplyBatch")
+@Label("Apply Recipe Batch")
+@Category({"Amnesia", "Shuffle"})
+@Description("Removing and registering server recipes within one tick's budget")
+@StackTrace(false)
+public class ApplyBatchEvent extends Event {
+    @Label("Removed")
+    @Description("Number of recipes removed from the server in this batch")
+    public int removedCount;
+    
+    @Label("Registered")
+    @Description("Number of recipes registered on the server in this batch")
+    public int registeredCount;
+    
+    @Label("Builder Misses")
+    @Description("Number of recipes that could not be built and were skipped")
+    public int builderMisses;
+    
+    @Label("Budget")
+    @Timespan(Timespan.MILLISECONDS)
+    public long budgetMillis;
+    
+    @Label("Tick")
+    @Description("Number of the tick within the pipeline, starting at 1")
+    public int tick;
+    
+    @Label("Last Batch")
+    @Description("Whether this batch finished the pipeline, including the bulk client update")
+    public boolean last;
+}
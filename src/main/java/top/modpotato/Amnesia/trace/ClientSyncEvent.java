@@ -0,0 +1,29 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for starting a client recipe sync
+ */
+@Name("top.modpotato.amnesia.ClientSync")
+@Label("Client Recipe Sync")
+@Category({"Amnesia", "Client Sync"})
+@Description("Preparing and scheduling the recipe sync of every online player")
+@StackTrace(false)
+public class ClientSyncEvent extends Event {
+    @Label("Mode")
+    public String mode;
+    
+    @Label("Players")
+    @Description("Number of online players")
+    public int playerCount;
+    
+    @Label("Recipes")
+    @Description("Number of shuffled recipes to sync")
+    public int recipeCount;
+}
@@ -0,0 +1,21 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for syncing one player's recipes
+ */
+@Name("top.modpotato.amnesia.PlayerSync")
+@Label("Player Recipe Sync")
+@Category({"Amnesia", "Client Sync"})
+@Description("Sending one player their discovered recipes")
+@StackTrace(false)
+public class PlayerSyncEvent extends Event {
+    @Label("Player")
+    public String player;
+}
@@ -0,0 +1,32 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for computing shuffled results
+ */
+@Name("top.modpotato.amnesia.PrepareShuffle")
+@Label("Prepare Shuffle")
+@Category({"Amnesia", "Shuffle"})
+@Description("Computing the shuffled result of each recipe for a seed and mode")
+@StackTrace(false)
+public class PrepareShuffleEvent extends Event {
+    @Label("Mode")
+    public String mode;
+    
+    @Label("Seed")
+    public long seed;
+    
+    @Label("Recipes")
+    @Description("Number of recipes to shuffle")
+    public int recipeCount;
+    
+    @Label("Prepared")
+    @Description("Number of recipes that were given a shuffled result")
+    public int preparedCount;
+}
@@ -0,0 +1,26 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for writing config.yml or data.yml
+ */
+@Name("top.modpotato.amnesia.SaveFile")
+@Label("Save File")
+@Category({"Amnesia", "Storage"})
+@Description("Serializing and writing a plugin file in the background")
+@StackTrace(false)
+public class SaveFileEvent extends Event {
+    @Label("File")
+    public String file;
+    
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
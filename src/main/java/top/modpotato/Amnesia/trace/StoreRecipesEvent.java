@@ -0,0 +1,26 @@
+package top.modpotato.Amnesia.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for reading the original recipes from the server
+ */
+@Name("top.modpotato.amnesia.StoreRecipes")
+@Label("Store Original Recipes")
+@Category({"Amnesia", "Shuffle"})
+@Description("Reading and capturing the server recipes the shuffle starts from")
+@StackTrace(false)
+public class StoreRecipesEvent extends Event {
+    @Label("Recipes")
+    @Description("Number of recipes captured")
+    public int recipeCount;
+    
+    @Label("Excluded")
+    @Description("Number of recipes skipped because they are excluded")
+    public int excludedCount;
+}
@@ -2,6 +2,7 @@ package top.modpotato.Amnesia.util;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
@@ -16,13 +17,26 @@ public class MessageUtil {
      * @param message the message to broadcast
      */
     public static void broadcastMessage(String message) {
-        Component component = miniMessage.deserialize(message);
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.sendMessage(component);
-        }
-        
-        // Also log to console
-        Bukkit.getConsoleSender().sendMessage(component);
+        broadcast(miniMessage.deserialize(message));
+    }
+    
+    /**
+     * Broadcasts an already parsed message to all online players and the console
+     * @param component the message to broadcast
+     */
+    public static void broadcast(Component component) {
+        // The server is an audience of every player and the console, so this is a single send
+        Bukkit.getServer().sendMessage(component);
+    }
+    
+    /**
+     * Parses a MiniMessage string once so it can be sent many times
+     * @param message the message
+     * @param resolvers resolvers for placeholders in the message
+     * @return the parsed message
+     */
+    public static Component compile(String message, TagResolver... resolvers) {
+        return miniMessage.deserialize(message, resolvers);
     }
     
     /**
@@ -34,25 +48,4 @@ public class MessageUtil {
         Component component = miniMessage.deserialize(message);
         player.sendMessage(component);
     }
-    
-    /**
-     * Replaces placeholders in a message
-     * @param message the message
-     * @param placeholders the placeholders and their values
-     * @return the message with placeholders replaced
-     */
-    public static String replacePlaceholders(String message, String... placeholders) {
-        if (placeholders.length % 2 != 0) {
-            throw new IllegalArgumentException("Placeholders must be in pairs of placeholder and value");
-        }
-        
-        String result = message;
-        for (int i = 0; i < placeholders.length; i += 2) {
-            String placeholder = placeholders[i];
-            String value = placeholders[i + 1];
-            result = result.replace("<" + placeholder + ">", value);
-        }
-        
-        return result;
-    }
 } 
\ No newline at end of file
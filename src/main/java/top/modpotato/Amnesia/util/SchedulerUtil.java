@@ -1,7 +1,10 @@
 package top.modpotato.Amnesia.util;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import top.modpotato.Amnesia.Main;
 
 import java.util.concurrent.CompletableFuture;
@@ -83,4 +86,64 @@ public class SchedulerUtil {
                     return null;
                 });
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Runs a task on the thread that owns an entity
+     * On Folia the task runs on the entity's scheduler, otherwise on the main thread
+     * @param plugin the plugin instance
+     * @param entity the entity
+     * @param task the task to run
+     * @return true if the task was run or scheduled, false if the entity was already removed
+     */
+    public static boolean runForEntity(Plugin plugin, Entity entity, Runnable task) {
+        if (Main.isFolia()) {
+            return entity.getScheduler().run(plugin, scheduledTask -> task.run(), null) != null;
+        } else {
+            runTask(plugin, task);
+            return true;
+        }
+    }
+    
+    /**
+     * Runs a task on the main thread after a delay
+     * @param plugin the plugin instance
+     * @param task the task to run
+     * @param delay the delay in ticks, at least 1
+     * @return the scheduled task, either a BukkitTask or Folia's ScheduledTask
+     */
+    public static Object runTaskLater(Plugin plugin, Runnable task, long delay) {
+        if (Main.isFolia()) {
+            return Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduledTask -> task.run(), delay);
+        } else {
+            return Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+        }
+    }
+    
+    /**
+     * Runs a repeating task on the main thread
+     * @param plugin the plugin instance
+     * @param task the task to run
+     * @param delay the delay in ticks before the first run, at least 1
+     * @param period the period in ticks between runs
+     * @return the scheduled task, either a BukkitTask or Folia's ScheduledTask
+     */
+    public static Object runTaskTimer(Plugin plugin, Runnable task, long delay, long period) {
+        if (Main.isFolia()) {
+            return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(), delay, period);
+        } else {
+            return Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+        }
+    }
+    
+    /**
+     * Cancels a task returned by one of the scheduling methods
+     * @param task the task to cancel, may be null
+     */
+    public static void cancelTask(Object task) {
+        if (task instanceof BukkitTask) {
+            ((BukkitTask) task).cancel();
+        } else if (task instanceof ScheduledTask) {
+            ((ScheduledTask) task).cancel();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package top.modpotato.Amnesia.util;
+
+import org.bukkit.plugin.Plugin;
+import top.modpotato.Amnesia.trace.SaveFileEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves a file in the background
+ * Saves requested while one is pending are coalesced into a single write, and the file is replaced
+ * through a temp file and an atomic rename so a crash never leaves it half-written
+ */
+public class WriteBehindFile {
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    
+    private final Plugin plugin;
+    private final File file;
+    private final Callable<String> serializer;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ExecutorService executor;
+    
+    /**
+     * Creates a new WriteBehindFile
+     * @param plugin the plugin instance
+     * @param file the file to write
+     * @param serializer produces the file contents, called on the writer thread
+     */
+    public WriteBehindFile(Plugin plugin, File file, Callable<String> serializer) {
+        this.plugin = plugin;
+        this.file = file;
+        this.serializer = serializer;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, plugin.getName() + " " + file.getName() + " writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Marks the file as changed, it is written in the background shortly after
+     * Does nothing more if a write is already pending, that write picks up this change too
+     */
+    public void markDirty() {
+        if (dirty.getAndSet(true)) {
+            return;
+        }
+        
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // The writer was already closed, write on the calling thread instead
+            flush();
+        }
+    }
+    
+    /**
+     * Writes any pending change and stops the writer, blocking until the file is written
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for " + file.getName() + " to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Catch anything that was marked after the last background write
+        flush();
+    }
+    
+    /**
+     * Writes the file if it has changed since the last write
+     */
+    private synchronized void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        
+        SaveFileEvent event = new SaveFileEvent();
+        event.begin();
+        try {
+            byte[] contents = serializer.call().getBytes(StandardCharsets.UTF_8);
+            write(contents);
+            event.bytes = contents.length;
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not save " + file.getName() + ": " + e.getMessage());
+        }
+        event.file = file.getName();
+        event.commit();
+    }
+    
+    /**
+     * Replaces the file with new contents
+     * @param contents the new contents
+     * @throws IOException if the file could not be written
+     */
+    private void write(byte[] contents) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            out.write(contents);
+            out.getFD().sync();
+        }
+        
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
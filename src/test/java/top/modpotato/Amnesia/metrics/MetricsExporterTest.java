@@ -0,0 +1,94 @@
+package top.modpotato.Amnesia.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import top.modpotato.Amnesia.Main;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scrapes a running exporter over HTTP and checks the Prometheus text format
+ */
+class MetricsExporterTest {
+    private Main plugin;
+    private MetricsExporter exporter;
+    private final HttpClient client = HttpClient.newHttpClient();
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        MockBukkit.mock();
+        plugin = MockBukkit.load(Main.class);
+        plugin.getTimerManager().stopTimer();
+        
+        exporter = new MetricsExporter(plugin, plugin.getMetrics());
+        exporter.start("127.0.0.1", 0);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        exporter.stop();
+        MockBukkit.unmock();
+    }
+    
+    @Test
+    void servesHistogramsInTextFormat() throws Exception {
+        // 50 microseconds lands in the smallest client sync bucket
+        plugin.getMetrics().observeClientSync(50_000);
+        
+        HttpResponse<String> response = client.send(request("GET"), HttpResponse.BodyHandlers.ofString());
+        String body = response.body();
+        
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        assertTrue(body.contains("# TYPE amnesia_client_sync_seconds histogram\n"));
+        assertTrue(body.contains("amnesia_client_sync_seconds_bucket{le=\"1.0E-4\"} 1\n"), body);
+        assertTrue(body.contains("amnesia_client_sync_seconds_bucket{le=\"0.1\"} 1\n"), body);
+        assertTrue(body.contains("amnesia_client_sync_seconds_bucket{le=\"+Inf\"} 1\n"), body);
+        assertTrue(body.contains("amnesia_client_sync_seconds_count 1\n"), body);
+        assertTrue(body.contains("amnesia_shuffle_phase_seconds_bucket{phase=\"store\",le=\"0.001\"} "), body);
+        assertTrue(body.contains("# TYPE amnesia_shuffles_applied_total counter\n"));
+        assertTrue(body.endsWith("\n"));
+        
+        // Every sample line is a name with optional labels, a space and a number
+        for (String line : body.split("\n")) {
+            if (!line.startsWith("#")) {
+                assertTrue(line.matches("[a-z_]+(\\{[^}]*})? -?[0-9.E+-]+"), line);
+            }
+        }
+    }
+    
+    @Test
+    void answersHeadWithoutBody() throws Exception {
+        HttpResponse<String> response = client.send(request("HEAD"), HttpResponse.BodyHandlers.ofString());
+        
+        assertEquals(200, response.statusCode());
+        assertEquals("", response.body());
+    }
+    
+    @Test
+    void rejectsOtherMethods() throws Exception {
+        HttpResponse<String> response = client.send(request("POST"), HttpResponse.BodyHandlers.ofString());
+        
+        assertEquals(405, response.statusCode());
+    }
+    
+    /**
+     * Builds a request to the exporter's /metrics endpoint
+     * @param method the HTTP method
+     * @return the request
+     */
+    private HttpRequest request(String method) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + exporter.getPort() + "/metrics"))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package top.modpotato.Amnesia.recipe;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.RecipeChoice;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeType;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds small recipe registries for tests, without a server
+ */
+public final class TestRecipes {
+    
+    private TestRecipes() {
+    }
+    
+    /**
+     * Creates a recipe key in the test namespace
+     * @param name the key name
+     * @return the key
+     */
+    public static NamespacedKey key(String name) {
+        return new NamespacedKey("test", name);
+    }
+    
+    /**
+     * Creates a plain result
+     * @param material the result material
+     * @return the result, with an amount of 1
+     */
+    public static ResultDescriptor result(Material material) {
+        return ResultDescriptor.of(material, 1);
+    }
+    
+    /**
+     * Creates a shapeless recipe without ingredients
+     * @param name the key name
+     * @param material the original result material
+     * @return the recipe descriptor
+     */
+    public static RecipeDescriptor recipe(String name, Material material) {
+        return new RecipeDescriptor(key(name), RecipeType.SHAPELESS, new String[0], new char[0],
+                new RecipeChoice[0], 0, 0, result(material));
+    }
+    
+    /**
+     * Creates a registry from pairs of key names and original result materials
+     * @param entries the key name and material of each recipe, alternating
+     * @return the recipe descriptors by key
+     */
+    public static Map<NamespacedKey, RecipeDescriptor> registry(Object... entries) {
+        Map<NamespacedKey, RecipeDescriptor> recipes = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            RecipeDescriptor recipe = recipe((String) entries[i], (Material) entries[i + 1]);
+            recipes.put(recipe.key(), recipe);
+        }
+        return recipes;
+    }
+}
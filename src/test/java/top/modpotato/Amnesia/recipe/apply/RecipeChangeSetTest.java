@@ -0,0 +1,117 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.Test;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static top.modpotato.Amnesia.recipe.TestRecipes.key;
+import static top.modpotato.Amnesia.recipe.TestRecipes.registry;
+import static top.modpotato.Amnesia.recipe.TestRecipes.result;
+
+/**
+ * Checks which registry mutations the full and diff change sets produce
+ */
+class RecipeChangeSetTest {
+    private final Map<NamespacedKey, RecipeDescriptor> recipes = registry(
+            "kept", Material.DIAMOND,
+            "replaced", Material.STONE,
+            "added", Material.APPLE,
+            "removed", Material.STICK);
+    
+    @Test
+    void diffOnlyTouchesRecipesWhoseResultChanges() {
+        Map<NamespacedKey, ResultDescriptor> registered = new HashMap<>();
+        registered.put(key("kept"), result(Material.BREAD));
+        registered.put(key("replaced"), result(Material.STONE));
+        registered.put(key("removed"), result(Material.STICK));
+        
+        Map<NamespacedKey, ResultDescriptor> target = new HashMap<>();
+        target.put(key("kept"), result(Material.BREAD));
+        target.put(key("replaced"), result(Material.EMERALD));
+        target.put(key("added"), result(Material.DIAMOND));
+        
+        RecipeChangeSet changes = RecipeChangeSet.diff(recipes, registered, target);
+        Map<NamespacedKey, RecipeChangeSet.Change> byKey = byKey(changes);
+        
+        assertEquals(1, changes.getUnchanged());
+        assertEquals(3, byKey.size());
+        assertEquals(2, changes.getRemovalCount());
+        assertEquals(2, changes.getAdditionCount());
+        assertFalse(byKey.containsKey(key("kept")));
+        
+        // A replaced recipe is removed and re-registered in the same change
+        RecipeChangeSet.Change replaced = byKey.get(key("replaced"));
+        assertTrue(replaced.remove());
+        assertEquals(result(Material.EMERALD), replaced.addition().result());
+        assertEquals(recipes.get(key("replaced")), replaced.addition().descriptor());
+        
+        // Nothing is registered under a new recipe yet, so there is nothing to remove
+        RecipeChangeSet.Change added = byKey.get(key("added"));
+        assertFalse(added.remove());
+        assertEquals(result(Material.DIAMOND), added.addition().result());
+        
+        RecipeChangeSet.Change removed = byKey.get(key("removed"));
+        assertTrue(removed.remove());
+        assertNull(removed.addition());
+    }
+    
+    @Test
+    void diffOfMatchingRegistryIsEmpty() {
+        Map<NamespacedKey, ResultDescriptor> target = new HashMap<>();
+        for (RecipeDescriptor recipe : recipes.values()) {
+            target.put(recipe.key(), recipe.result());
+        }
+        
+        RecipeChangeSet changes = RecipeChangeSet.diff(recipes, target, target);
+        
+        assertTrue(changes.isEmpty());
+        assertEquals(recipes.size(), changes.getUnchanged());
+        assertEquals(0, changes.getRemovalCount());
+        assertEquals(0, changes.getAdditionCount());
+    }
+    
+    @Test
+    void fullRemovesEveryRecipeAndRegistersTheTarget() {
+        Map<NamespacedKey, ResultDescriptor> target = new HashMap<>();
+        target.put(key("kept"), result(Material.DIAMOND));
+        target.put(key("replaced"), result(Material.APPLE));
+        
+        RecipeChangeSet changes = RecipeChangeSet.full(recipes, target);
+        Map<NamespacedKey, RecipeChangeSet.Change> byKey = byKey(changes);
+        
+        assertEquals(0, changes.getUnchanged());
+        assertEquals(recipes.size(), changes.getRemovalCount());
+        assertEquals(2, changes.getAdditionCount());
+        for (RecipeChangeSet.Change change : byKey.values()) {
+            assertTrue(change.remove());
+        }
+        
+        // A recipe whose result doesn't change is still registered again
+        assertEquals(result(Material.DIAMOND), byKey.get(key("kept")).addition().result());
+        assertEquals(result(Material.APPLE), byKey.get(key("replaced")).addition().result());
+        assertNull(byKey.get(key("added")).addition());
+        assertNull(byKey.get(key("removed")).addition());
+    }
+    
+    /**
+     * Indexes the changes of a change set by recipe key
+     * @param changes the change set
+     * @return the changes by recipe key
+     */
+    private static Map<NamespacedKey, RecipeChangeSet.Change> byKey(RecipeChangeSet changes) {
+        Map<NamespacedKey, RecipeChangeSet.Change> byKey = new HashMap<>();
+        for (RecipeChangeSet.Change change : changes.getChanges()) {
+            byKey.put(change.key(), change);
+        }
+        return byKey;
+    }
+}
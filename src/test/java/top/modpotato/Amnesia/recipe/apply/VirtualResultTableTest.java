@@ -0,0 +1,110 @@
+package top.modpotato.Amnesia.recipe.apply;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static top.modpotato.Amnesia.recipe.TestRecipes.key;
+import static top.modpotato.Amnesia.recipe.TestRecipes.registry;
+import static top.modpotato.Amnesia.recipe.TestRecipes.result;
+
+/**
+ * Checks lookups in the virtual result table and decoding its namespaces back into results
+ * A recipe reload and the history rebuild namespace results from the table, it is their only copy
+ */
+class VirtualResultTableTest {
+    private final Map<NamespacedKey, RecipeDescriptor> recipes = registry(
+            "a", Material.DIAMOND,
+            "b", Material.STONE,
+            "c", Material.APPLE);
+    private VirtualResultTable table;
+    
+    @BeforeEach
+    void setUp() {
+        // The pooled results are real items, which need a server
+        MockBukkit.mock();
+        
+        Map<NamespacedKey, ResultDescriptor> global = new HashMap<>();
+        global.put(key("a"), result(Material.STONE));
+        global.put(key("b"), result(Material.DIAMOND));
+        global.put(key("c"), result(Material.APPLE));
+        
+        Map<NamespacedKey, ResultDescriptor> red = new HashMap<>();
+        red.put(key("a"), result(Material.APPLE));
+        red.put(key("b"), result(Material.STONE));
+        red.put(key("c"), result(Material.DIAMOND));
+        
+        table = VirtualResultTable.of(recipes, global, Map.of("red", red));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+    
+    @Test
+    void looksUpRemappedResults() {
+        assertEquals(Material.STONE, table.get(key("a")).getType());
+        assertEquals(Material.DIAMOND, table.get(key("b")).getType());
+        assertNull(table.get(key("c")));
+        assertNull(table.get(key("unknown")));
+        
+        assertEquals(Material.APPLE, table.get(key("a"), "red").getType());
+        assertNull(table.get(key("b"), "red"));
+        assertEquals(Material.DIAMOND, table.get(key("c"), "red").getType());
+        
+        // An unknown namespace falls back to the global shuffle
+        assertEquals(Material.STONE, table.get(key("a"), "blue").getType());
+    }
+    
+    @Test
+    void decodesNamespaceResults() {
+        Map<NamespacedKey, ResultDescriptor> expected = new HashMap<>();
+        expected.put(key("a"), result(Material.APPLE));
+        expected.put(key("b"), result(Material.STONE));
+        expected.put(key("c"), result(Material.DIAMOND));
+        
+        assertEquals(Set.of("red"), table.getNamespaceNames());
+        assertEquals(expected, table.getResults("red", recipes));
+        assertNull(table.getResults("blue", recipes));
+    }
+    
+    @Test
+    void decodesOnlyRequestedRecipes() {
+        // A recipe removed by a reload is left out, one the namespace never remapped keeps its current result
+        Map<NamespacedKey, RecipeDescriptor> reloaded = registry(
+                "b", Material.STONE,
+                "d", Material.BREAD);
+        
+        Map<NamespacedKey, ResultDescriptor> expected = new HashMap<>();
+        expected.put(key("b"), result(Material.STONE));
+        expected.put(key("d"), result(Material.BREAD));
+        
+        assertEquals(expected, table.getResults("red", reloaded));
+    }
+    
+    @Test
+    void tableWithoutRemapsIsEmpty() {
+        Map<NamespacedKey, ResultDescriptor> original = new HashMap<>();
+        for (RecipeDescriptor recipe : recipes.values()) {
+            original.put(recipe.key(), recipe.result());
+        }
+        
+        assertTrue(VirtualResultTable.of(recipes, original, Collections.emptyMap()).isEmpty());
+        assertFalse(table.isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package top.modpotato.Amnesia.recipe.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import top.modpotato.Amnesia.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saves, loads and trims the history journal in the plugin's data folder
+ */
+class ShuffleHistoryTest {
+    private Main plugin;
+    private File historyFile;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        MockBukkit.mock();
+        plugin = MockBukkit.load(Main.class);
+        plugin.getTimerManager().stopTimer();
+        plugin.getConfigManager().setHistorySize(20);
+        
+        historyFile = new File(plugin.getDataFolder(), "history.bin");
+        Files.deleteIfExists(historyFile.toPath());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+    
+    @Test
+    void loadsAppendedEntries() {
+        ShuffleHistory history = new ShuffleHistory(plugin);
+        history.load();
+        history.append(entry(1));
+        history.append(entry(2));
+        
+        ShuffleHistory reloaded = new ShuffleHistory(plugin);
+        reloaded.load();
+        List<ShuffleHistoryEntry> entries = reloaded.getEntries();
+        
+        assertEquals(2, entries.size());
+        assertSameEntry(entry(2), entries.get(0));
+        assertSameEntry(entry(1), entries.get(1));
+        assertSameEntry(entry(2), reloaded.getEntry(1));
+        assertNull(reloaded.getEntry(3));
+    }
+    
+    @Test
+    void trimsToRetention() {
+        plugin.getConfigManager().setHistorySize(2);
+        ShuffleHistory history = new ShuffleHistory(plugin);
+        history.load();
+        for (int i = 1; i <= 3; i++) {
+            history.append(entry(i));
+        }
+        
+        assertEquals(2, history.getEntries().size());
+        
+        // The file was rewritten without the oldest entry
+        ShuffleHistory reloaded = new ShuffleHistory(plugin);
+        reloaded.load();
+        List<ShuffleHistoryEntry> entries = reloaded.getEntries();
+        assertEquals(2, entries.size());
+        assertSameEntry(entry(3), entries.get(0));
+        assertSameEntry(entry(2), entries.get(1));
+    }
+    
+    @Test
+    void dropsTruncatedEntry() throws IOException {
+        ShuffleHistory history = new ShuffleHistory(plugin);
+        history.load();
+        history.append(entry(1));
+        history.append(entry(2));
+        
+        // Cut the last entry short, as a crash mid-write would
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        
+        ShuffleHistory reloaded = new ShuffleHistory(plugin);
+        reloaded.load();
+        assertEquals(1, reloaded.getEntries().size());
+        
+        // The file was repaired, so new entries append cleanly
+        reloaded.append(entry(3));
+        ShuffleHistory repaired = new ShuffleHistory(plugin);
+        repaired.load();
+        List<ShuffleHistoryEntry> entries = repaired.getEntries();
+        assertEquals(2, entries.size());
+        assertSameEntry(entry(3), entries.get(0));
+        assertSameEntry(entry(1), entries.get(1));
+    }
+    
+    @Test
+    void replacesUnknownFormat() throws IOException {
+        Files.write(historyFile.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        
+        ShuffleHistory history = new ShuffleHistory(plugin);
+        history.load();
+        assertTrue(history.getEntries().isEmpty());
+        
+        history.append(entry(1));
+        ShuffleHistory reloaded = new ShuffleHistory(plugin);
+        reloaded.load();
+        assertEquals(1, reloaded.getEntries().size());
+    }
+    
+    /**
+     * Creates an entry whose fields all derive from a number
+     * @param number the number
+     * @return the entry
+     */
+    private static ShuffleHistoryEntry entry(int number) {
+        return new ShuffleHistoryEntry(number * 1000L, number * 31L, number % 2 == 0, "random_item",
+                number * 7L, number, new byte[] { 1, 2, (byte) number },
+                Map.of("red", new byte[] { 3, (byte) number }));
+    }
+    
+    /**
+     * Checks that two entries hold the same values
+     * @param expected the expected entry
+     * @param actual the actual entry
+     */
+    private static void assertSameEntry(ShuffleHistoryEntry expected, ShuffleHistoryEntry actual) {
+        assertEquals(expected.timestamp(), actual.timestamp());
+        assertEquals(expected.seed(), actual.seed());
+        assertEquals(expected.userSetSeed(), actual.userSetSeed());
+        assertEquals(expected.mode(), actual.mode());
+        assertEquals(expected.exclusionFingerprint(), actual.exclusionFingerprint());
+        assertEquals(expected.recipeCount(), actual.recipeCount());
+        assertArrayEquals(expected.encodedPlan(), actual.encodedPlan());
+        assertEquals(expected.encodedNamespaces().keySet(), actual.encodedNamespaces().keySet());
+        assertArrayEquals(expected.encodedNamespaces().get("red"), actual.encodedNamespaces().get("red"));
+    }
+}
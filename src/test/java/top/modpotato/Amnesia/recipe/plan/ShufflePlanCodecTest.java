@@ -0,0 +1,88 @@
+package top.modpotato.Amnesia.recipe.plan;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.Test;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static top.modpotato.Amnesia.recipe.TestRecipes.key;
+
+/**
+ * Checks that plans survive encoding and that damaged plans are rejected
+ */
+class ShufflePlanCodecTest {
+    
+    @Test
+    void roundTripsPlans() throws IOException {
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>();
+        results.put(key("a"), ResultDescriptor.of(Material.DIAMOND, 1));
+        results.put(key("b"), ResultDescriptor.of(Material.DIAMOND, 3));
+        results.put(key("c"), ResultDescriptor.of(Material.STONE, 64));
+        results.put(NamespacedKey.minecraft("oak_planks"), ResultDescriptor.of(Material.OAK_PLANKS, 4));
+        ShufflePlan plan = new ShufflePlan(0x1234_5678_9abc_def0L, results);
+        
+        ShufflePlan decoded = ShufflePlanCodec.decode(ShufflePlanCodec.encode(plan), new RecipeInterner());
+        
+        assertEquals(plan.getFingerprint(), decoded.getFingerprint());
+        assertEquals(results, decoded.getResults());
+    }
+    
+    @Test
+    void roundTripsEmptyPlans() throws IOException {
+        ShufflePlan plan = new ShufflePlan(1L, new HashMap<>());
+        
+        ShufflePlan decoded = ShufflePlanCodec.decode(ShufflePlanCodec.encode(plan), new RecipeInterner());
+        
+        assertEquals(1L, decoded.getFingerprint());
+        assertEquals(0, decoded.size());
+    }
+    
+    @Test
+    void sharesDecodedResultsThroughTheInterner() throws IOException {
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>();
+        results.put(key("a"), ResultDescriptor.of(Material.APPLE, 2));
+        results.put(key("b"), ResultDescriptor.of(Material.APPLE, 2));
+        RecipeInterner interner = new RecipeInterner();
+        ResultDescriptor shared = interner.result(Material.APPLE, 2);
+        
+        ShufflePlan decoded = ShufflePlanCodec.decode(ShufflePlanCodec.encode(new ShufflePlan(0L, results)), interner);
+        
+        assertSame(shared, decoded.getResults().get(key("a")));
+        assertSame(shared, decoded.getResults().get(key("b")));
+    }
+    
+    @Test
+    void rejectsUnknownMaterials() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeLong(0L);
+            out.writeInt(1);
+            out.writeUTF("NOT_A_MATERIAL");
+            out.writeInt(0);
+        }
+        
+        assertThrows(IOException.class, () -> ShufflePlanCodec.decode(bytes.toByteArray(), new RecipeInterner()));
+    }
+    
+    @Test
+    void rejectsTruncatedPlans() throws IOException {
+        Map<NamespacedKey, ResultDescriptor> results = new HashMap<>();
+        results.put(key("a"), ResultDescriptor.of(Material.BREAD, 1));
+        byte[] encoded = ShufflePlanCodec.encode(new ShufflePlan(0L, results));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        
+        assertThrows(IOException.class, () -> ShufflePlanCodec.decode(truncated, new RecipeInterner()));
+    }
+}
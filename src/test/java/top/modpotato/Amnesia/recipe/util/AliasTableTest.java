@@ -0,0 +1,74 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that alias table samples follow their weights
+ */
+class AliasTableTest {
+    private static final int SAMPLES = 200_000;
+    
+    @Test
+    void samplesFollowWeights() {
+        AliasTable table = AliasTable.build(new int[] { 10, 20, 30, 40 }, new double[] { 1, 2, 3, 4 });
+        int[] counts = sample(table, 41);
+        
+        assertEquals(4, table.size());
+        assertEquals(0.1, counts[10] / (double) SAMPLES, 0.005);
+        assertEquals(0.2, counts[20] / (double) SAMPLES, 0.005);
+        assertEquals(0.3, counts[30] / (double) SAMPLES, 0.005);
+        assertEquals(0.4, counts[40] / (double) SAMPLES, 0.005);
+    }
+    
+    @Test
+    void skewedWeightsKeepRareOutcomes() {
+        AliasTable table = AliasTable.build(new int[] { 0, 1 }, new double[] { 0.01, 0.99 });
+        int[] counts = sample(table, 2);
+        
+        assertEquals(0.01, counts[0] / (double) SAMPLES, 0.002);
+        assertEquals(0.99, counts[1] / (double) SAMPLES, 0.002);
+    }
+    
+    @Test
+    void leavesOutUnpickableOutcomes() {
+        AliasTable table = AliasTable.build(new int[] { 0, 1, 2, 3, 4 },
+                new double[] { 0, -1, Double.NaN, Double.POSITIVE_INFINITY, 5 });
+        int[] counts = sample(table, 5);
+        
+        assertEquals(1, table.size());
+        assertEquals(SAMPLES, counts[4]);
+    }
+    
+    @Test
+    void tableWithoutWeightsIsEmpty() {
+        assertTrue(AliasTable.build(new int[] { 1 }, new double[] { 0 }).isEmpty());
+        assertFalse(AliasTable.build(new int[] { 1 }, new double[] { 1 }).isEmpty());
+    }
+    
+    @Test
+    void rejectsMismatchedWeights() {
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new int[] { 1, 2 }, new double[] { 1 }));
+    }
+    
+    /**
+     * Samples a table from a fixed seed
+     * @param table the table
+     * @param outcomes the number of possible outcome values, outcomes must be below it
+     * @return the number of times each outcome was picked
+     */
+    private static int[] sample(AliasTable table, int outcomes) {
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[outcomes];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,40 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks that recipe random streams only depend on the seed and the recipe key
+ */
+class KeyedRandomTest {
+    private static final NamespacedKey KEY = NamespacedKey.minecraft("oak_planks");
+    
+    @Test
+    void mixIsStableAcrossRuns() {
+        // A changed mix would prepare different shuffles for the same seed after an update
+        assertEquals(0x398c1d4583c427f0L, KeyedRandom.mix(42L, KEY));
+        assertEquals(-6247661443835383734L, KeyedRandom.forKey(42L, KEY).nextLong());
+    }
+    
+    @Test
+    void sameSeedAndKeyGiveTheSameStream() {
+        SplittableRandom first = KeyedRandom.forKey(42L, KEY);
+        SplittableRandom second = KeyedRandom.forKey(42L, NamespacedKey.minecraft("oak_planks"));
+        for (int i = 0; i < 16; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+    }
+    
+    @Test
+    void seedAndKeyBothChangeTheStream() {
+        long stream = KeyedRandom.forKey(42L, KEY).nextLong();
+        
+        assertNotEquals(stream, KeyedRandom.forKey(43L, KEY).nextLong());
+        assertNotEquals(stream, KeyedRandom.forKey(42L, NamespacedKey.minecraft("birch_planks")).nextLong());
+    }
+}
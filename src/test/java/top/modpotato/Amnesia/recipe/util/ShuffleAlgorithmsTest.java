@@ -0,0 +1,92 @@
+package top.modpotato.Amnesia.recipe.util;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.junit.jupiter.api.Test;
+import top.modpotato.Amnesia.recipe.TestRecipes;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeDescriptor;
+import top.modpotato.Amnesia.recipe.descriptor.RecipeInterner;
+import top.modpotato.Amnesia.recipe.descriptor.ResultDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks that the shuffle algorithms are deterministic for a fixed seed, whatever the order or threads
+ * The countdown's prepared plan and plan.bin are only valid because the same inputs always give the same shuffle
+ */
+class ShuffleAlgorithmsTest {
+    private static final int RECIPES = 200;
+    private static final Material[] RESULTS = {
+            Material.STONE, Material.DIAMOND, Material.APPLE, Material.STICK, Material.BREAD, Material.EMERALD
+    };
+    
+    private final Map<NamespacedKey, RecipeDescriptor> recipes = createRecipes();
+    
+    @Test
+    void recipeResultsDependOnlyOnSeedAndRecipes() {
+        List<NamespacedKey> keys = new ArrayList<>(recipes.keySet());
+        List<NamespacedKey> reversed = new ArrayList<>(keys);
+        Collections.reverse(reversed);
+        
+        Map<NamespacedKey, ResultDescriptor> first = ShuffleAlgorithms.recipeResults(7L, keys, recipes);
+        Map<NamespacedKey, ResultDescriptor> second = ShuffleAlgorithms.recipeResults(7L, reversed, recipes);
+        
+        assertEquals(first, second);
+        assertNotEquals(first, ShuffleAlgorithms.recipeResults(8L, keys, recipes));
+    }
+    
+    @Test
+    void recipeResultsArePermutation() {
+        Map<NamespacedKey, ResultDescriptor> shuffled = ShuffleAlgorithms.recipeResults(7L, recipes.keySet(), recipes);
+        
+        // Every original result is handed out exactly once
+        Map<ResultDescriptor, Integer> original = new HashMap<>();
+        for (RecipeDescriptor recipe : recipes.values()) {
+            original.merge(recipe.result(), 1, Integer::sum);
+        }
+        Map<ResultDescriptor, Integer> handedOut = new HashMap<>();
+        for (ResultDescriptor result : shuffled.values()) {
+            handedOut.merge(result, 1, Integer::sum);
+        }
+        
+        assertEquals(recipes.keySet(), shuffled.keySet());
+        assertEquals(original, handedOut);
+    }
+    
+    @Test
+    void weightedItemsDependOnlyOnSeed() {
+        AliasTable table = AliasTable.build(new int[] { Material.DIAMOND.ordinal(), Material.STONE.ordinal() },
+                new double[] { 1, 3 });
+        List<NamespacedKey> keys = new ArrayList<>(recipes.keySet());
+        List<NamespacedKey> reversed = new ArrayList<>(keys);
+        Collections.reverse(reversed);
+        
+        Map<NamespacedKey, ResultDescriptor> first = ShuffleAlgorithms.weightedItems(7L, keys, table,
+                new RecipeInterner());
+        Map<NamespacedKey, ResultDescriptor> second = ShuffleAlgorithms.weightedItems(7L, reversed, table,
+                new RecipeInterner());
+        
+        assertEquals(first, second);
+        assertNotEquals(first, ShuffleAlgorithms.weightedItems(8L, keys, table, new RecipeInterner()));
+    }
+    
+    /**
+     * Creates a registry with a few distinct results
+     * @return the recipe descriptors by key
+     */
+    private static Map<NamespacedKey, RecipeDescriptor> createRecipes() {
+        Map<NamespacedKey, RecipeDescriptor> recipes = new HashMap<>();
+        for (int i = 0; i < RECIPES; i++) {
+            RecipeDescriptor recipe = TestRecipes.recipe("recipe_" + i, RESULTS[i % RESULTS.length]);
+            recipes.put(recipe.key(), recipe);
+        }
+        return recipes;
+    }
+}